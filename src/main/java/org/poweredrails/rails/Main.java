@@ -24,27 +24,64 @@
  */
 package org.poweredrails.rails;
 
+import org.poweredrails.rails.concurrent.BlockingWorkCategory;
+import org.poweredrails.rails.concurrent.ScheduledQueueExecutor;
+import org.poweredrails.rails.concurrent.TickLoop;
 import org.poweredrails.rails.event.EventBus;
 import org.poweredrails.rails.log.ConsoleFormatter;
 import org.poweredrails.rails.net.NetworkManager;
+import org.poweredrails.rails.net.admission.AdmissionController;
+import org.poweredrails.rails.net.channel.TransportType;
+import org.poweredrails.rails.util.auth.ProfileCache;
+import org.poweredrails.rails.util.auth.SessionServerSettings;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.ConsoleHandler;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class Main {
 
     private static final Logger logger = Logger.getLogger("Rails");
     private static EventBus eventBus = new EventBus();
+    private static TickLoop tickLoop = new TickLoop();
+    private static ScheduledQueueExecutor scheduler = new ScheduledQueueExecutor(tickLoop);
+    private static ProfileCache profileCache = new ProfileCache(Long.getLong("rails.profiles.ttlMinutes", 60),
+            TimeUnit.MINUTES, Long.getLong("rails.profiles.maxSize", 10000));
+
+    private final NetworkManager networkManager;
 
     protected Main(NetworkManager networkManager) {
         this(networkManager, "localhost", 25565);
     }
 
     protected Main(NetworkManager networkManager, String host, int port) {
+        this.networkManager = networkManager;
+
+        tickLoop.addEndOfTickTask(networkManager.getSessionManager()::flushAll);
+        tickLoop.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "Rails Shutdown Thread"));
+
         networkManager.bindTo(new InetSocketAddress(host, port));
     }
 
+    /**
+     * Stops the server, closing every connection and stopping the server's threads.
+     */
+    public void shutdown() {
+        logger.info("Stopping server...");
+
+        this.networkManager.shutdown();
+        tickLoop.stop();
+        eventBus.shutdown();
+        scheduler.shutdownWithTimeout(5, TimeUnit.SECONDS);
+    }
+
     /**
      * Starts the Server.
      * @param args boot arguments
@@ -58,11 +95,70 @@ public class Main {
 
         logger.info("Starting server...");
 
-        new Main(new NetworkManager(logger));
+        if (Boolean.getBoolean("rails.events.profile")) {
+            eventBus.getProfiler().setEnabled(true);
+            eventBus.getProfiler().scheduleReport(scheduler,
+                    Long.getLong("rails.events.profileReportSeconds", 60), TimeUnit.SECONDS, 10);
+        }
+
+        String profileSnapshot = System.getProperty("rails.profiles.snapshot");
+        if (profileSnapshot != null) {
+            loadProfileSnapshot(Paths.get(profileSnapshot));
+        }
+
+        boolean allowNative = !Boolean.getBoolean("rails.network.disableNative");
+        int bossThreads = Integer.getInteger("rails.network.bossThreads", 1);
+        int workerThreads = Integer.getInteger("rails.network.workerThreads", 0);
+        boolean reusePort = Boolean.getBoolean("rails.network.reusePort");
+        int compressionThreshold = Integer.getInteger("rails.network.compressionThreshold",
+                NetworkManager.DEFAULT_COMPRESSION_THRESHOLD);
+
+        SessionServerSettings sessionServer = new SessionServerSettings(
+                System.getProperty("rails.auth.sessionServer", SessionServerSettings.DEFAULT_URL),
+                Integer.getInteger("rails.auth.connectTimeoutMillis", 5000),
+                Integer.getInteger("rails.auth.requestTimeoutMillis", 10000),
+                Integer.getInteger("rails.auth.maxConnections", 32));
+
+        AdmissionController admissionController = new AdmissionController(scheduler,
+                Integer.getInteger("rails.admission.loginsPerAddress", 20),
+                Integer.getInteger("rails.admission.loginsPerSecond", 20),
+                Integer.getInteger("rails.admission.loginBurst", 40),
+                Integer.getInteger("rails.admission.maxQueueLength", 1000));
+
+        new Main(new NetworkManager(logger, TransportType.best(allowNative), bossThreads, workerThreads, reusePort,
+                compressionThreshold, sessionServer, admissionController));
+    }
+
+    private static void loadProfileSnapshot(Path file) {
+        try {
+            profileCache.load(file);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to load profile snapshot " + file, e);
+        }
+
+        scheduler.enqueueAsRepeating(() -> scheduler.enqueueBlocking(BlockingWorkCategory.DISK, () -> {
+            try {
+                profileCache.save(file);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to save profile snapshot " + file, e);
+            }
+        }), 5, 5, TimeUnit.MINUTES);
     }
 
     public static EventBus getEventBus() {
         return eventBus;
     }
 
+    public static TickLoop getTickLoop() {
+        return tickLoop;
+    }
+
+    public static ScheduledQueueExecutor getScheduler() {
+        return scheduler;
+    }
+
+    public static ProfileCache getProfileCache() {
+        return profileCache;
+    }
+
 }
@@ -0,0 +1,57 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.concurrent;
+
+/**
+ * The kinds of blocking work run on the {@link BlockingWorkExecutor}, each limited to its own amount of tasks
+ * running at once so one kind of work can't starve the others.
+ */
+public enum BlockingWorkCategory {
+
+    /**
+     * Reading and writing files.
+     */
+    DISK(8),
+
+    /**
+     * Blocking work submitted by plugins.
+     */
+    PLUGIN(16);
+
+    private final int defaultLimit;
+
+    BlockingWorkCategory(int defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+
+    /**
+     * Returns the amount of tasks of this category allowed to run at once, unless configured otherwise.
+     * @return default concurrency limit
+     */
+    public int getDefaultLimit() {
+        return this.defaultLimit;
+    }
+
+}
@@ -0,0 +1,316 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.concurrent;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Runs blocking work, such as disk access, away from the netty event loops and the tick thread.
+ *
+ * <p>When running on a JDK with virtual threads, each task gets its own virtual thread. Otherwise tasks share a
+ * bounded pool of platform threads. Either way, each {@link BlockingWorkCategory} is limited to a number of tasks
+ * running at once, and any more are queued until one of them finishes.</p>
+ */
+public class BlockingWorkExecutor {
+
+    private static final int MAX_QUEUED_PER_CATEGORY = 8192;
+
+    private final Logger logger = Logger.getLogger("Rails");
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+
+    private final Map<BlockingWorkCategory, CategoryQueue> queues = new EnumMap<>(BlockingWorkCategory.class);
+
+    public BlockingWorkExecutor() {
+        this(Math.max(4, Runtime.getRuntime().availableProcessors() * 4), new EnumMap<>(BlockingWorkCategory.class));
+    }
+
+    /**
+     * Creates a new blocking work executor.
+     * @param poolSize the amount of threads to use if virtual threads aren't available
+     * @param limits the amount of tasks allowed to run at once for each category, any category missing uses its
+     *               default limit
+     */
+    public BlockingWorkExecutor(int poolSize, Map<BlockingWorkCategory, Integer> limits) {
+        ExecutorService virtualExecutor = newVirtualThreadExecutor();
+
+        this.virtual = virtualExecutor != null;
+        this.executor = this.virtual ? virtualExecutor : newPlatformThreadExecutor(poolSize);
+
+        for (BlockingWorkCategory category : BlockingWorkCategory.values()) {
+            int limit = limits.getOrDefault(category, category.getDefaultLimit());
+            this.queues.put(category, new CategoryQueue(this.executor, limit));
+        }
+
+        this.logger.info("Running blocking work on " + (this.virtual ? "virtual threads" : poolSize + " threads"));
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor(int poolSize) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new ThreadFactoryBuilder()
+                        .setNameFormat("Rails Blocking Worker #%d")
+                        .setDaemon(true)
+                        .build());
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    /**
+     * Submits blocking work to be run.
+     * @param category the category of the work
+     * @param task the work to run
+     * @param <T> result type
+     * @return a future completed with the result of the work, or exceptionally if it failed or was rejected
+     */
+    public <T> CompletableFuture<T> submit(BlockingWorkCategory category, Callable<T> task) {
+        Task<T> queued = new Task<>(task);
+
+        if (!this.queues.get(category).submit(queued)) {
+            queued.reject(new RejectedExecutionException("Too much " + category + " work queued!"));
+        }
+
+        return queued.future;
+    }
+
+    /**
+     * Submits blocking work to be run.
+     * @param category the category of the work
+     * @param task the work to run
+     * @return a future completed once the work has run, or exceptionally if it failed or was rejected
+     */
+    public CompletableFuture<Void> submit(BlockingWorkCategory category, Runnable task) {
+        return submit(category, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Returns whether work runs on virtual threads.
+     * @return true if virtual threads are in use
+     */
+    public boolean isVirtual() {
+        return this.virtual;
+    }
+
+    /**
+     * Returns the queue and metrics for a category of work.
+     * @param category the category
+     * @return category queue
+     */
+    public CategoryQueue getQueue(BlockingWorkCategory category) {
+        return this.queues.get(category);
+    }
+
+    /**
+     * Stops accepting new work and interrupts any work still running.
+     */
+    public void shutdownNow() {
+        this.executor.shutdownNow();
+
+        // Anything still queued is rejected by the executor now, failing its future
+        this.queues.values().forEach(CategoryQueue::drain);
+    }
+
+    /**
+     * A unit of blocking work and the future completed with its result.
+     * @param <T> result type
+     */
+    private static final class Task<T> {
+
+        private final Callable<T> callable;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Task(Callable<T> callable) {
+            this.callable = callable;
+        }
+
+        private boolean run() {
+            try {
+                this.future.complete(this.callable.call());
+                return true;
+            } catch (Throwable e) {
+                this.future.completeExceptionally(e);
+                return false;
+            }
+        }
+
+        private void reject(RejectedExecutionException e) {
+            this.future.completeExceptionally(e);
+        }
+
+    }
+
+    /**
+     * The queue of work for a single category, which only lets a limited amount of that work run at once.
+     */
+    public static final class CategoryQueue {
+
+        private final ExecutorService executor;
+        private final int limit;
+
+        private final Queue<Task<?>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        CategoryQueue(ExecutorService executor, int limit) {
+            this.executor = executor;
+            this.limit = limit;
+        }
+
+        boolean submit(Task<?> task) {
+            if (this.queued.incrementAndGet() > MAX_QUEUED_PER_CATEGORY) {
+                this.queued.decrementAndGet();
+                this.rejected.increment();
+                return false;
+            }
+
+            this.queue.add(task);
+            drain();
+            return true;
+        }
+
+        private void drain() {
+            while (!this.queue.isEmpty()) {
+                int running = this.active.get();
+                if (running >= this.limit) {
+                    return;
+                }
+
+                if (!this.active.compareAndSet(running, running + 1)) {
+                    continue;
+                }
+
+                Task<?> task = this.queue.poll();
+                if (task == null) {
+                    this.active.decrementAndGet();
+                    continue;
+                }
+
+                this.queued.decrementAndGet();
+
+                try {
+                    this.executor.execute(() -> run(task));
+                } catch (RejectedExecutionException e) {
+                    // Shut down, give the slot back and fail the work rather than leave its future pending
+                    this.active.decrementAndGet();
+                    this.rejected.increment();
+                    task.reject(e);
+                }
+            }
+        }
+
+        private void run(Task<?> task) {
+            long start = System.nanoTime();
+
+            try {
+                if (!task.run()) {
+                    this.failed.increment();
+                }
+            } finally {
+                this.completed.increment();
+                this.totalNanos.add(System.nanoTime() - start);
+                this.active.decrementAndGet();
+                drain();
+            }
+        }
+
+        /**
+         * Returns the amount of tasks of this category allowed to run at once.
+         * @return concurrency limit
+         */
+        public int getLimit() {
+            return this.limit;
+        }
+
+        public int getActive() {
+            return this.active.get();
+        }
+
+        public int getQueued() {
+            return this.queued.get();
+        }
+
+        public long getCompleted() {
+            return this.completed.sum();
+        }
+
+        /**
+         * Returns the amount of tasks of this category which threw an exception, out of those completed.
+         * @return failed task count
+         */
+        public long getFailed() {
+            return this.failed.sum();
+        }
+
+        public long getRejected() {
+            return this.rejected.sum();
+        }
+
+        /**
+         * Returns the mean time the tasks of this category have taken to run.
+         * @return mean run time, in nanoseconds
+         */
+        public long getMeanRunNanos() {
+            long runs = this.completed.sum();
+            return runs == 0 ? 0 : this.totalNanos.sum() / runs;
+        }
+
+    }
+
+}
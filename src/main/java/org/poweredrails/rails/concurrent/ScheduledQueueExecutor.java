@@ -24,25 +24,38 @@
  */
 package org.poweredrails.rails.concurrent;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 public class ScheduledQueueExecutor {
 
-    private ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
-    private List<ScheduledFuture<?>> tasks = new ArrayList<>();
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(2);
+    private final TickLoop tickLoop;
+    private final BlockingWorkExecutor blockingExecutor = new BlockingWorkExecutor();
 
-    public ScheduledQueueExecutor() {
-        this.enqueueAsRepeating(() -> this.tasks.forEach(t -> {
-            if (t.isCancelled()) {
-                this.tasks.remove(t);
-            }
-        }), 0, 1, TimeUnit.MILLISECONDS);
+    /**
+     * Creates a new scheduled queue executor. Cancelled tasks are removed from the executor's queue as soon as they
+     * are cancelled, and tasks measured in ticks are kept in the tick loop's timing wheel, so they follow the
+     * server's ticks even when it falls behind. Once they expire they are handed to the executor service.
+     * @param tickLoop the tick loop which ticks are counted on
+     */
+    public ScheduledQueueExecutor(TickLoop tickLoop) {
+        this.tickLoop = tickLoop;
+
+        this.executor.setRemoveOnCancelPolicy(true);
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    private void dispatch(Runnable rnbl) {
+        try {
+            this.executor.execute(rnbl);
+        } catch (RejectedExecutionException e) {
+            // Shut down, tick tasks are dropped just like delayed tasks
+        }
     }
 
     /**
@@ -73,9 +86,7 @@ public class ScheduledQueueExecutor {
      * @return the future object for this task
      */
     public ScheduledFuture<?> enqueueAsRepeating(Runnable rnbl, long delay, long period, TimeUnit unit) {
-        ScheduledFuture<?> future = this.executor.scheduleAtFixedRate(rnbl, delay, period, unit);
-        this.tasks.add(future);
-        return future;
+        return this.executor.scheduleAtFixedRate(rnbl, delay, period, unit);
     }
 
     /**
@@ -87,9 +98,60 @@ public class ScheduledQueueExecutor {
      * @return the future object for this task
      */
     public <T> ScheduledFuture<T> enqueueCallable(Callable<T> callable, long delay, TimeUnit unit) {
-        ScheduledFuture<T> future = this.executor.schedule(callable, delay, unit);
-        this.tasks.add(future);
-        return future;
+        return this.executor.schedule(callable, delay, unit);
+    }
+
+    /**
+     * Queue a task to be executed after the given amount of server ticks by the executor service.
+     * @param rnbl the runnable to execute
+     * @param delay the amount of ticks to wait
+     * @return the timeout for this task
+     */
+    public TimingWheel.Timeout enqueueWithTickDelay(Runnable rnbl, long delay) {
+        return this.tickLoop.schedule(() -> dispatch(rnbl), delay);
+    }
+
+    /**
+     * Queue a task to begin executing repeatedly, with the given period in server ticks, after the delay by the
+     * executor service.
+     * @param rnbl the runnable to execute
+     * @param delay the amount of ticks to wait before starting the repeating task
+     * @param period the amount of ticks between each execution of the task
+     * @return the timeout for this task
+     */
+    public TimingWheel.Timeout enqueueAsRepeatingTicks(Runnable rnbl, long delay, long period) {
+        return this.tickLoop.scheduleRepeating(() -> dispatch(rnbl), delay, period);
+    }
+
+    /**
+     * Queue blocking work, such as a web request or file access, to be executed away from the executor service's
+     * threads.
+     * @param category the category of the work, which limits how much of it executes at once
+     * @param callable the callable to execute
+     * @param <T> generic object
+     * @return a future completed with the result of the work
+     */
+    public <T> CompletableFuture<T> enqueueBlocking(BlockingWorkCategory category, Callable<T> callable) {
+        return this.blockingExecutor.submit(category, callable);
+    }
+
+    /**
+     * Queue blocking work, such as a web request or file access, to be executed away from the executor service's
+     * threads.
+     * @param category the category of the work, which limits how much of it executes at once
+     * @param rnbl the runnable to execute
+     * @return a future completed once the work has executed
+     */
+    public CompletableFuture<Void> enqueueBlocking(BlockingWorkCategory category, Runnable rnbl) {
+        return this.blockingExecutor.submit(category, rnbl);
+    }
+
+    /**
+     * Returns the executor that blocking work is executed on.
+     * @return blocking work executor
+     */
+    public BlockingWorkExecutor getBlockingExecutor() {
+        return this.blockingExecutor;
     }
 
     /**
@@ -97,6 +159,7 @@ public class ScheduledQueueExecutor {
      */
     public void shutdownNow() {
         this.executor.shutdownNow();
+        this.blockingExecutor.shutdownNow();
     }
 
     /**
@@ -106,11 +169,13 @@ public class ScheduledQueueExecutor {
      * @param unit the unit that the timeout is specified in
      */
     public void shutdownWithTimeout(int timeout, TimeUnit unit) {
-        this.tasks.forEach(t -> t.cancel(false));
+        // Stops periodic and delayed tasks from running again, tick tasks expiring from now on are dropped
+        this.executor.shutdown();
 
         try {
             this.executor.awaitTermination(timeout, unit);
             this.executor.shutdownNow();
+            this.blockingExecutor.shutdownNow();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
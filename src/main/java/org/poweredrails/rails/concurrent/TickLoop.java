@@ -0,0 +1,283 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.concurrent;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The main server thread, ticking at a fixed rate.
+ *
+ * <p>Each tick drains a bounded batch of the work queued from other threads (such as packets received on the netty
+ * event loops), runs the tasks scheduled for that tick, and then runs the end of tick tasks, which is where outbound
+ * writes are flushed. If ticks overrun, the following ticks run back to back to catch up, unless the loop has fallen
+ * too far behind, in which case the missed ticks are skipped.</p>
+ */
+public class TickLoop implements Runnable {
+
+    public static final int TICKS_PER_SECOND = 20;
+    public static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1) / TICKS_PER_SECOND;
+
+    private static final int MAX_CATCH_UP_TICKS = TICKS_PER_SECOND;
+
+    private static final int DEFAULT_MAX_TASKS_PER_TICK = 1024;
+    private static final long DEFAULT_DRAIN_BUDGET_NANOS = TICK_NANOS / 2;
+
+    private final Logger logger = Logger.getLogger("Rails");
+
+    private final Queue<Runnable> inbound = new ConcurrentLinkedQueue<>();
+    private final TimingWheel scheduled = new TimingWheel(512, this::runSafely);
+    private final List<Runnable> endOfTickTasks = new CopyOnWriteArrayList<>();
+
+    private final TickStatistics statistics = new TickStatistics(TICKS_PER_SECOND * 60);
+
+    private final int maxTasksPerTick;
+    private final long drainBudgetNanos;
+    private final LongSupplier clock;
+
+    private volatile Thread thread;
+    private volatile boolean running;
+
+    private volatile long currentTick;
+    private volatile long skippedTicks;
+
+    public TickLoop() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * Creates a new tick loop with the default work budget, which reads the time from the given clock.
+     * @param clock the clock to read the time from, in nanoseconds
+     */
+    TickLoop(LongSupplier clock) {
+        this(DEFAULT_MAX_TASKS_PER_TICK, DEFAULT_DRAIN_BUDGET_NANOS, clock);
+    }
+
+    /**
+     * Creates a new tick loop.
+     * @param maxTasksPerTick the maximum amount of queued work to run each tick
+     * @param drainBudgetNanos the maximum time to spend running queued work each tick, in nanoseconds
+     */
+    public TickLoop(int maxTasksPerTick, long drainBudgetNanos) {
+        this(maxTasksPerTick, drainBudgetNanos, System::nanoTime);
+    }
+
+    /**
+     * Creates a new tick loop which reads the time from the given clock.
+     * @param maxTasksPerTick the maximum amount of queued work to run each tick
+     * @param drainBudgetNanos the maximum time to spend running queued work each tick, in nanoseconds
+     * @param clock the clock to read the time from, in nanoseconds
+     */
+    TickLoop(int maxTasksPerTick, long drainBudgetNanos, LongSupplier clock) {
+        this.maxTasksPerTick = maxTasksPerTick;
+        this.drainBudgetNanos = drainBudgetNanos;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts the tick loop on a new thread.
+     */
+    public synchronized void start() {
+        if (this.thread != null) {
+            throw new IllegalStateException("Tick loop has already been started!");
+        }
+
+        this.running = true;
+        this.thread = new Thread(this, "Rails Server Thread");
+        this.thread.start();
+    }
+
+    /**
+     * Stops the tick loop once the current tick has finished.
+     */
+    public void stop() {
+        this.running = false;
+
+        Thread thread = this.thread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public void run() {
+        long nextTick = this.clock.getAsLong();
+
+        while (this.running) {
+            nextTick = runTick(nextTick);
+
+            // When behind, the next tick runs straight away to catch up
+            long sleep;
+            while (this.running && (sleep = nextTick - this.clock.getAsLong()) > 0) {
+                LockSupport.parkNanos(this, sleep);
+            }
+        }
+    }
+
+    /**
+     * Runs a single tick, and works out when the next tick is due.
+     * @param dueAt the time this tick was due to start, in nanoseconds
+     * @return the time the next tick is due to start, in nanoseconds
+     */
+    long runTick(long dueAt) {
+        long start = this.clock.getAsLong();
+        tick(start);
+
+        long end = this.clock.getAsLong();
+        this.statistics.record(end - start);
+
+        long nextTick = dueAt + TICK_NANOS;
+
+        long behind = end - nextTick;
+        if (behind > MAX_CATCH_UP_TICKS * TICK_NANOS) {
+            long skipped = behind / TICK_NANOS;
+            this.skippedTicks += skipped;
+            this.logger.warning(String.format("Can't keep up! Skipping %d ticks (%s)", skipped, this.statistics));
+
+            return end;
+        }
+
+        return nextTick;
+    }
+
+    private void tick(long start) {
+        this.currentTick++;
+
+        drainInbound(start + this.drainBudgetNanos);
+        this.scheduled.advance();
+
+        for (Runnable task : this.endOfTickTasks) {
+            runSafely(task);
+        }
+    }
+
+    private void drainInbound(long deadline) {
+        for (int i = 0; i < this.maxTasksPerTick; i++) {
+            Runnable task = this.inbound.poll();
+            if (task == null) {
+                return;
+            }
+
+            runSafely(task);
+
+            if (this.clock.getAsLong() - deadline >= 0) {
+                return;
+            }
+        }
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            this.logger.log(Level.SEVERE, "Exception whilst ticking task " + task + "!", e);
+        }
+    }
+
+    /**
+     * Queues work to be run on the tick thread. Work is run in the order it was queued, a bounded amount each tick.
+     * @param task the work to run
+     */
+    public void execute(Runnable task) {
+        this.inbound.add(task);
+    }
+
+    /**
+     * Schedules a task to be run on the tick thread after the given amount of ticks.
+     * @param task the task to run
+     * @param delay the amount of ticks to wait
+     * @return the timeout for the task
+     */
+    public TimingWheel.Timeout schedule(Runnable task, long delay) {
+        return this.scheduled.schedule(task, delay);
+    }
+
+    /**
+     * Schedules a task to be run repeatedly on the tick thread, starting after the given amount of ticks.
+     * @param task the task to run
+     * @param delay the amount of ticks to wait before first running the task
+     * @param period the amount of ticks between each run, or 0 to run only once
+     * @return the timeout for the task
+     */
+    public TimingWheel.Timeout scheduleRepeating(Runnable task, long delay, long period) {
+        return this.scheduled.scheduleRepeating(task, delay, period);
+    }
+
+    /**
+     * Adds a task to be run at the end of every tick, after queued and scheduled work.
+     * @param task the task to run
+     */
+    public void addEndOfTickTask(Runnable task) {
+        this.endOfTickTasks.add(task);
+    }
+
+    /**
+     * Returns whether the current thread is the tick thread.
+     * @return true if called from the tick thread
+     */
+    public boolean isTickThread() {
+        return Thread.currentThread() == this.thread;
+    }
+
+    /**
+     * Returns the amount of ticks that have run.
+     * @return current tick
+     */
+    public long getCurrentTick() {
+        return this.currentTick;
+    }
+
+    /**
+     * Returns the amount of ticks skipped because the loop fell too far behind to catch up.
+     * @return skipped ticks
+     */
+    public long getSkippedTicks() {
+        return this.skippedTicks;
+    }
+
+    /**
+     * Returns the amount of work queued to be run on the tick thread.
+     * @return queued work
+     */
+    public int getQueuedWork() {
+        return this.inbound.size();
+    }
+
+    /**
+     * Returns the durations of the recent ticks.
+     * @return tick statistics
+     */
+    public TickStatistics getStatistics() {
+        return this.statistics;
+    }
+
+}
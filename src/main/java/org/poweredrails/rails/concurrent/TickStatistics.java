@@ -0,0 +1,131 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.concurrent;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the durations of the most recent ticks, to report the milliseconds per tick (MSPT) the server is running at.
+ */
+public class TickStatistics {
+
+    private final long[] samples;
+
+    private int index;
+    private int count;
+
+    /**
+     * Creates new tick statistics.
+     * @param size the amount of recent ticks to keep
+     */
+    public TickStatistics(int size) {
+        this.samples = new long[size];
+    }
+
+    /**
+     * Records the duration of a tick.
+     * @param nanos the time the tick took, in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        this.samples[this.index] = nanos;
+        this.index = (this.index + 1) % this.samples.length;
+
+        if (this.count < this.samples.length) {
+            this.count++;
+        }
+    }
+
+    /**
+     * Returns the amount of ticks the statistics are currently calculated from.
+     * @return sample count
+     */
+    public synchronized int getSampleCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns the mean duration of the recent ticks.
+     * @return mean milliseconds per tick
+     */
+    public synchronized double getMeanMspt() {
+        if (this.count == 0) {
+            return 0;
+        }
+
+        long total = 0;
+        for (int i = 0; i < this.count; i++) {
+            total += this.samples[i];
+        }
+
+        return total / (double) this.count / 1e6;
+    }
+
+    /**
+     * Returns the 99th percentile duration of the recent ticks.
+     * @return 99th percentile milliseconds per tick
+     */
+    public double getP99Mspt() {
+        return getPercentileMspt(0.99);
+    }
+
+    /**
+     * Returns a percentile duration of the recent ticks.
+     * @param percentile the percentile, between 0 and 1
+     * @return milliseconds per tick at the percentile
+     */
+    public double getPercentileMspt(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (this.count == 0) {
+                return 0;
+            }
+
+            sorted = Arrays.copyOf(this.samples, this.count);
+        }
+
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(rank, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * Returns the longest duration of the recent ticks.
+     * @return maximum milliseconds per tick
+     */
+    public synchronized double getMaxMspt() {
+        long max = 0;
+        for (int i = 0; i < this.count; i++) {
+            max = Math.max(max, this.samples[i]);
+        }
+
+        return max / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("mean %.2fms, p99 %.2fms, max %.2fms", getMeanMspt(), getP99Mspt(), getMaxMspt());
+    }
+
+}
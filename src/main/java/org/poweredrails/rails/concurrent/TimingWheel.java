@@ -0,0 +1,278 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed timing wheel, scheduling tasks a number of ticks ahead.
+ *
+ * <p>Timeouts are hashed into a ring of buckets by the tick they expire on, so scheduling and cancelling are both
+ * constant time, and each tick only visits the bucket for that tick. Timeouts further away than one revolution of
+ * the wheel count down the remaining rounds each time their bucket is visited.</p>
+ *
+ * <p>Tasks may be scheduled and cancelled from any thread, but {@link #advance()} must only be called from a single
+ * thread.</p>
+ */
+public class TimingWheel {
+
+    private final Bucket[] wheel;
+    private final int mask;
+
+    private final Executor executor;
+
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+
+    private volatile long tick;
+
+    /**
+     * Creates a new timing wheel.
+     * @param wheelSize the amount of buckets in the wheel, rounded up to a power of two
+     * @param executor the executor that expired tasks are run with
+     */
+    public TimingWheel(int wheelSize, Executor executor) {
+        if (wheelSize <= 0 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("Wheel size must be between 1 and 2^30!");
+        }
+
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        if (size == 0) {
+            size = 1;
+        }
+
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            this.wheel[i] = new Bucket();
+        }
+
+        this.mask = size - 1;
+        this.executor = executor;
+    }
+
+    /**
+     * Schedules a task to be run after the given amount of ticks.
+     * @param task the task to run
+     * @param delay the amount of ticks to wait, at least 1
+     * @return the timeout for the task
+     */
+    public Timeout schedule(Runnable task, long delay) {
+        return scheduleRepeating(task, delay, 0);
+    }
+
+    /**
+     * Schedules a task to be run repeatedly, starting after the given amount of ticks.
+     * @param task the task to run
+     * @param delay the amount of ticks to wait before first running the task, at least 1
+     * @param period the amount of ticks between each run, or 0 to run only once
+     * @return the timeout for the task
+     */
+    public Timeout scheduleRepeating(Runnable task, long delay, long period) {
+        if (period < 0) {
+            throw new IllegalArgumentException("Period must not be negative!");
+        }
+
+        Timeout timeout = new Timeout(this, task, this.tick + Math.max(1, delay), period);
+        this.pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Moves the wheel on by one tick, running every task which has expired.
+     */
+    public void advance() {
+        long tick = this.tick + 1;
+
+        removeCancelled();
+        transferPending(tick);
+
+        Bucket bucket = this.wheel[(int) (tick & this.mask)];
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+
+            if (timeout.remainingRounds <= 0) {
+                bucket.remove(timeout);
+                expire(timeout);
+            } else {
+                timeout.remainingRounds--;
+            }
+
+            timeout = next;
+        }
+
+        this.tick = tick;
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = this.cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferPending(long tick) {
+        Timeout timeout;
+        while ((timeout = this.pending.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+
+            long deadline = Math.max(timeout.deadline, tick);
+            timeout.remainingRounds = (deadline - tick) / this.wheel.length;
+            this.wheel[(int) (deadline & this.mask)].add(timeout);
+        }
+    }
+
+    private void expire(Timeout timeout) {
+        if (timeout.isCancelled()) {
+            return;
+        }
+
+        if (timeout.period > 0) {
+            // Repeating timeouts go back through the pending queue, so they aren't visited again this tick
+            timeout.deadline += timeout.period;
+            this.pending.add(timeout);
+        } else if (!timeout.state.compareAndSet(Timeout.WAITING, Timeout.EXPIRED)) {
+            return;
+        }
+
+        this.executor.execute(timeout.task);
+    }
+
+    /**
+     * Returns the amount of ticks the wheel has advanced by.
+     * @return current tick
+     */
+    public long getTick() {
+        return this.tick;
+    }
+
+    /**
+     * A task scheduled on a timing wheel.
+     */
+    public static final class Timeout {
+
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final TimingWheel timingWheel;
+        private final Runnable task;
+        private final long period;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private long deadline;
+        private long remainingRounds;
+
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimingWheel timingWheel, Runnable task, long deadline, long period) {
+            this.timingWheel = timingWheel;
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        /**
+         * Cancels the task, stopping it from running again.
+         * @return false if the task had already run or been cancelled
+         */
+        public boolean cancel() {
+            if (!this.state.compareAndSet(WAITING, CANCELLED)) {
+                return false;
+            }
+
+            this.timingWheel.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return this.state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return this.state.get() == EXPIRED;
+        }
+
+        /**
+         * Returns the tick the task will next run on.
+         * @return deadline tick
+         */
+        public long getDeadline() {
+            return this.deadline;
+        }
+
+    }
+
+    /**
+     * A doubly linked list of the timeouts hashed to one slot of the wheel.
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+
+            if (this.head == null) {
+                this.head = timeout;
+                this.tail = timeout;
+            } else {
+                this.tail.next = timeout;
+                timeout.prev = this.tail;
+                this.tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                this.head = timeout.next;
+            }
+
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                this.tail = timeout.prev;
+            }
+
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+    }
+
+}
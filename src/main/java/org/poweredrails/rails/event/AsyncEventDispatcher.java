@@ -0,0 +1,206 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.event;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.poweredrails.rails.net.packet.Packet;
+import org.poweredrails.rails.net.session.Session;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dispatches events on a bounded pool of event workers.
+ *
+ * <p>An event is only handed to the pool when every handler for it is marked async-safe through
+ * {@link Subscribe#async()}. All of its handlers are then called on the same worker, in priority order and
+ * honouring cancellation, exactly as they would have been synchronously. Events with any other handler are
+ * dispatched on the calling thread. When the queue is full the calling thread dispatches the event itself, and once
+ * the dispatcher has been shut down the returned future fails instead.</p>
+ */
+public class AsyncEventDispatcher {
+
+    private final ListenerRegistry registry;
+    private final EventDispatcher dispatcher;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder dispatches = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Creates a new async event dispatcher.
+     * @param registry the listener registry
+     * @param dispatcher the dispatcher calling the handlers
+     * @param threads the amount of event worker threads
+     * @param queueSize the maximum amount of events waiting to be dispatched
+     */
+    public AsyncEventDispatcher(ListenerRegistry registry, EventDispatcher dispatcher, int threads, int queueSize) {
+        this.registry = registry;
+        this.dispatcher = dispatcher;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new ThreadFactoryBuilder().setNameFormat("Rails Event Worker #%d").setDaemon(true).build(),
+                AsyncEventDispatcher::rejected);
+    }
+
+    /**
+     * Dispatches an event asynchronously.
+     * @param event the event to dispatch
+     * @param <E> the event type
+     * @return a future completed with the event once every handler has been called
+     */
+    public <E extends Event> CompletableFuture<E> dispatch(E event) {
+        return dispatch(event, this.registry.getHandlersFor(event));
+    }
+
+    private <E extends Event> CompletableFuture<E> dispatch(E event, EventHandler[] handlers) {
+        CompletableFuture<E> future = new CompletableFuture<>();
+
+        if (handlers.length == 0) {
+            future.complete(event);
+        } else if (isAsync(handlers)) {
+            try {
+                this.executor.execute(() -> run(event, handlers, future));
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+        } else {
+            run(event, handlers, future);
+        }
+
+        return future;
+    }
+
+    /**
+     * Dispatches a packet event asynchronously, for a packet.
+     * @param session the client session that the packet should encompass
+     * @param packet the packet to dispatch
+     * @param <T> the packet type
+     * @return a future completed with true if the packet was cancelled
+     */
+    public <T extends Packet<?>> CompletableFuture<Boolean> dispatchPacket(Session session, T packet) {
+        EventHandler[] handlers = this.registry.getHandlersFor(packet);
+        if (handlers.length == 0) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        PacketEvent<T> event = new PacketEvent<>(packet);
+        event.setClient(session);
+
+        return dispatch(event, handlers).thenApply(PacketEvent::isCancelled);
+    }
+
+    private <E extends Event> void run(E event, EventHandler[] handlers, CompletableFuture<E> future) {
+        long start = System.nanoTime();
+
+        try {
+            this.dispatcher.dispatch(event, handlers);
+            future.complete(event);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    private void record(long nanos) {
+        this.dispatches.increment();
+        this.totalNanos.add(nanos);
+
+        long max;
+        do {
+            max = this.maxNanos.get();
+        } while (nanos > max && !this.maxNanos.compareAndSet(max, nanos));
+    }
+
+    /**
+     * Runs an event on the calling thread when the queue is full, or refuses it once the workers are shut down.
+     */
+    private static void rejected(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("The event workers have been shut down!");
+        }
+
+        task.run();
+    }
+
+    private static boolean isAsync(EventHandler[] handlers) {
+        for (EventHandler handler : handlers) {
+            if (!handler.isAsync()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the amount of events waiting for an event worker.
+     * @return queue depth
+     */
+    public int getQueueDepth() {
+        return this.executor.getQueue().size();
+    }
+
+    /**
+     * Returns the amount of events dispatched through this dispatcher.
+     * @return dispatch count
+     */
+    public long getDispatchCount() {
+        return this.dispatches.sum();
+    }
+
+    /**
+     * Returns the mean time spent calling the handlers of an event, in nanoseconds.
+     * @return mean handler latency
+     */
+    public long getMeanLatencyNanos() {
+        long count = this.dispatches.sum();
+        return count == 0 ? 0 : this.totalNanos.sum() / count;
+    }
+
+    /**
+     * Returns the longest time spent calling the handlers of an event, in nanoseconds.
+     * @return max handler latency
+     */
+    public long getMaxLatencyNanos() {
+        return this.maxNanos.get();
+    }
+
+    /**
+     * Stops the event workers once every queued event has been dispatched. Events dispatched asynchronously from
+     * then on fail with a {@link RejectedExecutionException}.
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+}
@@ -27,14 +27,29 @@ package org.poweredrails.rails.event;
 import org.poweredrails.rails.net.packet.Packet;
 import org.poweredrails.rails.net.session.Session;
 
+import java.util.concurrent.CompletableFuture;
+
 public class EventBus {
 
     private final ListenerRegistry registry;
+    private final EventProfiler profiler;
     private final EventDispatcher dispatcher;
+    private final AsyncEventDispatcher asyncDispatcher;
 
     public EventBus() {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors() / 2), 4096);
+    }
+
+    /**
+     * Creates a new event bus.
+     * @param asyncThreads the amount of threads dispatching asynchronous events
+     * @param asyncQueueSize the maximum amount of asynchronous events waiting to be dispatched
+     */
+    public EventBus(int asyncThreads, int asyncQueueSize) {
         this.registry   = new ListenerRegistry();
-        this.dispatcher = new EventDispatcher(this.registry);
+        this.profiler   = new EventProfiler(this.registry);
+        this.dispatcher = new EventDispatcher(this.registry, this.profiler);
+        this.asyncDispatcher = new AsyncEventDispatcher(this.registry, this.dispatcher, asyncThreads, asyncQueueSize);
     }
 
     /**
@@ -45,6 +60,17 @@ public class EventBus {
         this.dispatcher.dispatch(event);
     }
 
+    /**
+     * Fires an event asynchronously. The event is dispatched on an event worker if every handler for it is
+     * async-safe, otherwise it's dispatched on the calling thread.
+     * @param event the event
+     * @param <E> the event type
+     * @return a future completed with the event once every handler has been called
+     */
+    public <E extends Event> CompletableFuture<E> fireAsync(E event) {
+        return this.asyncDispatcher.dispatch(event);
+    }
+
     /**
      * Fires a packet event for the packet.
      * @param session the client session receiving/sending the packet
@@ -56,6 +82,51 @@ public class EventBus {
         return this.dispatcher.dispatchPacket(session, packet);
     }
 
+    /**
+     * Fires a packet event for the packet asynchronously. The event is dispatched on an event worker if every
+     * handler for it is async-safe, otherwise it's dispatched on the calling thread.
+     * @param session the client session receiving/sending the packet
+     * @param packet the packet
+     * @param <T> the packet type
+     * @return a future completed with true if the packet was cancelled
+     */
+    public <T extends Packet<?>> CompletableFuture<Boolean> firePacketAsync(Session session, T packet) {
+        return this.asyncDispatcher.dispatchPacket(session, packet);
+    }
+
+    /**
+     * Stops the event workers once every queued asynchronous event has been dispatched.
+     */
+    public void shutdown() {
+        this.asyncDispatcher.shutdown();
+    }
+
+    /**
+     * Returns the dispatcher used for asynchronous events, which exposes its queue depth and handler latency.
+     * @return async event dispatcher
+     */
+    public AsyncEventDispatcher getAsyncDispatcher() {
+        return this.asyncDispatcher;
+    }
+
+    /**
+     * Returns the profiler, which times event handlers when enabled.
+     * @return event profiler
+     */
+    public EventProfiler getProfiler() {
+        return this.profiler;
+    }
+
+    /**
+     * Returns whether anything is listening for packet events of this packet class. This is a single map lookup,
+     * so callers can check it before firing to skip creating the packet event entirely.
+     * @param packetClass the packet class
+     * @return true if the packet has subscribers
+     */
+    public boolean hasPacketSubscribers(Class<?> packetClass) {
+        return this.registry.hasHandlersFor(packetClass);
+    }
+
     /**
      * Registers a listener.
      * @param listener the listener
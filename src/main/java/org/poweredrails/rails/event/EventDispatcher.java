@@ -27,14 +27,14 @@ package org.poweredrails.rails.event;
 import org.poweredrails.rails.net.packet.Packet;
 import org.poweredrails.rails.net.session.Session;
 
-import java.util.List;
-
 public class EventDispatcher {
 
     private final ListenerRegistry registry;
+    private final EventProfiler profiler;
 
-    public EventDispatcher(ListenerRegistry registry) {
+    public EventDispatcher(ListenerRegistry registry, EventProfiler profiler) {
         this.registry = registry;
+        this.profiler = profiler;
     }
 
     /**
@@ -42,7 +42,16 @@ public class EventDispatcher {
      * @param event the event to dispatch
      */
     public void dispatch(Event event) {
-        List<EventHandler> handlers = this.registry.getHandlersFor(event);
+        dispatch(event, this.registry.getHandlersFor(event));
+    }
+
+    /**
+     * Dispatches an event across the given handlers, in order.
+     * @param event the event to dispatch
+     * @param handlers the handlers to dispatch to
+     */
+    void dispatch(Event event, EventHandler[] handlers) {
+        boolean profiling = this.profiler.isEnabled();
 
         for (EventHandler handler : handlers) {
             if (event instanceof CancellableEvent) {
@@ -52,7 +61,25 @@ public class EventDispatcher {
                 }
             }
 
+            if (profiling) {
+                handleProfiled(handler, event);
+            } else {
+                handler.handle(event);
+            }
+        }
+    }
+
+    private static void handleProfiled(EventHandler handler, Event event) {
+        EventHandlerStatistics statistics = handler.getStatistics();
+        long start = System.nanoTime();
+
+        try {
             handler.handle(event);
+        } catch (RuntimeException e) {
+            statistics.recordException();
+            throw e;
+        } finally {
+            statistics.record(System.nanoTime() - start);
         }
     }
 
@@ -64,18 +91,15 @@ public class EventDispatcher {
      * @return true if the packet was cancelled
      */
     public <T extends Packet<?>> boolean dispatchPacket(Session session, T packet) {
-        List<EventHandler> handlers = this.registry.getHandlersFor(packet);
+        EventHandler[] handlers = this.registry.getHandlersFor(packet);
+        if (handlers.length == 0) {
+            return false;
+        }
 
         PacketEvent<T> event = new PacketEvent<>(packet);
         event.setClient(session);
 
-        for (EventHandler handler : handlers) {
-            if (handler.ignoresCancelled() && event.isCancelled()) {
-                continue;
-            }
-
-            handler.handle(event);
-        }
+        dispatch(event, handlers);
 
         return event.isCancelled();
     }
@@ -0,0 +1,93 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.event;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Invokes an event handler's method on its listener, bound when the listener is registered.
+ */
+@FunctionalInterface
+public interface EventExecutor {
+
+    /**
+     * Calls the handler method.
+     * @param listener the listener the method belongs to
+     * @param event the event to pass to the method
+     * @throws Throwable anything thrown by the handler method
+     */
+    void execute(Listener listener, Event event) throws Throwable;
+
+    /**
+     * Creates an executor for the method.
+     *
+     * <p>Where the listener's class is visible to Rails and public, a class implementing this interface is spun
+     * with {@link LambdaMetafactory}, so the handler is called directly. Otherwise the executor falls back to
+     * invoking a method handle, which still avoids the access checks and boxing of reflection.</p>
+     *
+     * @param method the handler method
+     * @return the executor
+     */
+    static EventExecutor create(Method method) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> declaringClass = method.getDeclaringClass();
+
+            if (declaringClass.getClassLoader() == EventExecutor.class.getClassLoader()
+                    && Listener.class.isAssignableFrom(declaringClass)
+                    && Modifier.isPublic(declaringClass.getModifiers())
+                    && !Modifier.isStatic(method.getModifiers())) {
+                MethodHandle target = lookup.unreflect(method);
+                CallSite site = LambdaMetafactory.metafactory(lookup, "execute",
+                        MethodType.methodType(EventExecutor.class),
+                        MethodType.methodType(void.class, Listener.class, Event.class),
+                        target,
+                        MethodType.methodType(void.class, declaringClass, method.getParameterTypes()[0]));
+
+                return (EventExecutor) site.getTarget().invoke();
+            }
+
+            method.setAccessible(true);
+            MethodHandle handle = lookup.unreflect(method);
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Listener.class);
+            }
+
+            MethodHandle bound = handle.asType(MethodType.methodType(void.class, Listener.class, Event.class));
+            return (listener, event) -> {
+                bound.invokeExact(listener, event);
+            };
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to bind event handler " + method + "!", e);
+        }
+    }
+
+}
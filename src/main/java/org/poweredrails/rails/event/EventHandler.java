@@ -33,34 +33,112 @@ public class EventHandler {
 
     private Listener listener;
     private Method method;
+    private EventExecutor executor;
     private TypeToken<?> eventTypeToken;
     private Subscribe annotation;
 
+    private Class<?> eventClass;
+    private Class<?> packetClass;
+
+    private long registrationOrder;
+
+    private final EventHandlerStatistics statistics = new EventHandlerStatistics();
+
     public EventHandler(Listener listener, Method method, TypeToken<?> eventTypeToken, Subscribe annotation) {
+        this(listener, method, eventTypeToken, annotation, EventExecutor.create(method));
+    }
+
+    /**
+     * Creates a handler calling its method through an executor already bound to it, so every listener of the same
+     * class shares one executor class and the call site dispatching to them stays monomorphic.
+     * @param listener the listener the method belongs to
+     * @param method the handler method
+     * @param eventTypeToken the type of event the method takes
+     * @param annotation the method's subscription
+     * @param executor the executor bound to the method
+     */
+    EventHandler(Listener listener, Method method, TypeToken<?> eventTypeToken, Subscribe annotation,
+                 EventExecutor executor) {
         this.listener = listener;
         this.method   = method;
+        this.executor = executor;
         this.eventTypeToken = eventTypeToken;
         this.annotation = annotation;
+
+        this.eventClass = eventTypeToken.getRawType();
+        if (PacketEvent.class.equals(this.eventClass)) {
+            this.packetClass = eventTypeToken.resolveType(PacketEvent.class.getTypeParameters()[0]).getRawType();
+        }
     }
 
     public boolean handlesEvent(Class<? extends Event> clazz) {
-        return clazz.equals(this.eventTypeToken.getRawType());
+        return this.eventClass.isAssignableFrom(clazz);
     }
 
     public boolean handlesPacket(Packet<?> packet) {
-        Class<?> clazz = packet.getClass();
-        Class<?> actualClass = this.eventTypeToken.resolveType(PacketEvent.class.getTypeParameters()[0]).getRawType();
-        return clazz.equals(actualClass);
+        return this.packetClass != null && this.packetClass.isInstance(packet);
+    }
+
+    /**
+     * Returns the class of event this handler subscribes to.
+     * @return event class
+     */
+    public Class<?> getEventClass() {
+        return this.eventClass;
+    }
+
+    /**
+     * Returns the class of packet this handler subscribes to, if it handles packet events.
+     * @return packet class, or null if this isn't a packet event handler
+     */
+    public Class<?> getPacketClass() {
+        return this.packetClass;
+    }
+
+    /**
+     * Returns the listener this handler belongs to.
+     * @return listener
+     */
+    public Listener getListener() {
+        return this.listener;
+    }
+
+    Method getMethod() {
+        return this.method;
+    }
+
+    EventExecutor getExecutor() {
+        return this.executor;
     }
 
     public void handle(Event event) {
         try {
-            this.method.invoke(this.listener, event);
-        } catch (Exception e) {
+            this.executor.execute(this.listener, event);
+        } catch (Throwable e) {
             throw new RuntimeException("An exception occurred whilst handling an event!", e);
         }
     }
 
+    /**
+     * Returns the order in which this handler was registered, relative to other handlers.
+     * @return registration order
+     */
+    public long getRegistrationOrder() {
+        return this.registrationOrder;
+    }
+
+    void setRegistrationOrder(long registrationOrder) {
+        this.registrationOrder = registrationOrder;
+    }
+
+    /**
+     * Returns the timings recorded for this handler while event profiling is enabled.
+     * @return handler statistics
+     */
+    public EventHandlerStatistics getStatistics() {
+        return this.statistics;
+    }
+
     public EventPriority getPriority() {
         return this.annotation.priority();
     }
@@ -69,4 +147,13 @@ public class EventHandler {
         return this.annotation.ignoreCancelled();
     }
 
+    public boolean isAsync() {
+        return this.annotation.async();
+    }
+
+    @Override
+    public String toString() {
+        return this.method.getDeclaringClass().getName() + "#" + this.method.getName();
+    }
+
 }
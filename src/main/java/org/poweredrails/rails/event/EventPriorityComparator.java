@@ -26,11 +26,20 @@ package org.poweredrails.rails.event;
 
 import java.util.Comparator;
 
+/**
+ * Orders event handlers from the highest priority to the lowest, and handlers of equal priority in the order they
+ * were registered.
+ */
 public class EventPriorityComparator implements Comparator<EventHandler> {
 
     @Override
     public int compare(EventHandler o1, EventHandler o2) {
-        return o2.getPriority().compareTo(o1.getPriority());
+        int priority = o2.getPriority().compareTo(o1.getPriority());
+        if (priority != 0) {
+            return priority;
+        }
+
+        return Long.compare(o1.getRegistrationOrder(), o2.getRegistrationOrder());
     }
 
     @Override
@@ -0,0 +1,124 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.event;
+
+import org.poweredrails.rails.concurrent.ScheduledQueueExecutor;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Controls whether event handlers are timed when they are called, and reports on the slowest of them.
+ *
+ * <p>While disabled, the only cost to dispatching is reading a volatile flag once per event.</p>
+ */
+public class EventProfiler {
+
+    private final Logger logger = Logger.getLogger("Rails");
+
+    private final ListenerRegistry registry;
+
+    private volatile boolean enabled;
+
+    public EventProfiler(ListenerRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Returns whether event handlers are being timed.
+     * @return true if profiling is enabled
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Enables or disables timing event handlers.
+     * @param enabled true to enable profiling
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the registered event handlers that have spent the most time handling events.
+     * @param limit the maximum amount of handlers to return
+     * @return handlers, slowest first
+     */
+    public List<EventHandler> getSlowestHandlers(int limit) {
+        List<EventHandler> handlers = this.registry.getHandlers();
+        handlers.sort(Comparator.comparingLong((EventHandler h) -> h.getStatistics().getTotalNanos()).reversed());
+
+        return handlers.subList(0, Math.min(limit, handlers.size()));
+    }
+
+    /**
+     * Clears the statistics of every registered event handler.
+     */
+    public void reset() {
+        this.registry.getHandlers().forEach(handler -> handler.getStatistics().reset());
+    }
+
+    /**
+     * Logs the event handlers that have spent the most time handling events.
+     * @param limit the maximum amount of handlers to report
+     */
+    public void report(int limit) {
+        List<EventHandler> slowest = getSlowestHandlers(limit);
+        if (slowest.isEmpty() || slowest.get(0).getStatistics().getInvocations() == 0) {
+            return;
+        }
+
+        StringBuilder builder = new StringBuilder("Slowest event listeners:");
+        for (EventHandler handler : slowest) {
+            EventHandlerStatistics stats = handler.getStatistics();
+            if (stats.getInvocations() == 0) {
+                break;
+            }
+
+            builder.append(String.format("%n  %s: %d calls, %.3fms total, %.3fms max, %d exceptions", handler,
+                    stats.getInvocations(), stats.getTotalNanos() / 1e6, stats.getMaxNanos() / 1e6,
+                    stats.getExceptions()));
+        }
+
+        this.logger.info(builder.toString());
+    }
+
+    /**
+     * Schedules a report of the slowest event handlers to be logged periodically.
+     * @param executor the executor to schedule the report on
+     * @param period the interval between each report
+     * @param unit the time unit the period is specified in
+     * @param limit the maximum amount of handlers to report
+     * @return the future object for the report task
+     */
+    public ScheduledFuture<?> scheduleReport(ScheduledQueueExecutor executor, long period, TimeUnit unit, int limit) {
+        return executor.enqueueAsRepeating(() -> report(limit), period, period, unit);
+    }
+
+}
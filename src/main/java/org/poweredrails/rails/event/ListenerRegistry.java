@@ -24,24 +24,60 @@
  */
 package org.poweredrails.rails.event;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.reflect.TypeToken;
 import org.poweredrails.rails.net.packet.Packet;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Holds every registered event handler.
+ *
+ * <p>Handlers are stored in a bucket per priority, so any amount of handlers may share a priority and keep the
+ * order they were registered in.</p>
+ *
+ * <p>Alongside the handlers themselves, the registry keeps an immutable index from event class (and from packet
+ * class, for packet event handlers) to the handlers declared for exactly that class. Handlers are dispatched
+ * polymorphically, so the first time an event or packet class is dispatched it is resolved to the flattened,
+ * priority ordered handlers of all its supertypes and interfaces, and that is cached. The index and its cache are
+ * replaced whenever a listener is registered or unregistered, so after the first dispatch looking up the handlers
+ * for an event is a single map lookup, however deep its type hierarchy is.</p>
+ */
 public class ListenerRegistry {
 
-    private Map<EventHandler, Listener> handlers = new ConcurrentSkipListMap<>(new EventPriorityComparator());
+    private static final EventHandler[] NO_HANDLERS = new EventHandler[0];
+
+    /**
+     * The registered handlers, bucketed by priority ordinal, each bucket in registration order.
+     */
+    private final List<List<EventHandler>> buckets = new ArrayList<>();
+
+    private long registrations;
+
+    /**
+     * The event and packet indexes, published together so a reader never sees one from before a registration and
+     * the other from after it.
+     */
+    private volatile HandlerIndex index = new HandlerIndex(ImmutableMap.of(), ImmutableMap.of());
+
+    public ListenerRegistry() {
+        for (int i = 0; i < EventPriority.values().length; i++) {
+            this.buckets.add(new CopyOnWriteArrayList<>());
+        }
+    }
 
     /**
      * Registers a listener's event handlers to watch when events are dispatched.
      * @param listener the listener to register
      */
-    public void register(Listener listener) {
+    public synchronized void register(Listener listener) {
         Class<? extends Listener> clazz = listener.getClass();
 
         for (Method method : clazz.getMethods()) {
@@ -49,52 +85,114 @@ public class ListenerRegistry {
             Subscribe subscribe = getAnnotation(method);
 
             if (token != null) {
-                EventHandler handler = new EventHandler(listener, method, token, subscribe);
-                this.handlers.put(handler, listener);
+                EventHandler handler = new EventHandler(listener, method, token, subscribe, executorFor(method));
+                handler.setRegistrationOrder(this.registrations++);
+                this.buckets.get(handler.getPriority().ordinal()).add(handler);
             }
         }
+
+        rebuildIndex();
     }
 
     /**
      * Unregisters a previously registered listener, removing all watching event handlers.
      * @param listener the listener to unregister
      */
-    public void unregister(Listener listener) {
-        this.handlers.forEach((handler, handlerListener) -> {
-            if (listener.equals(handlerListener)) {
-                this.handlers.remove(handler);
-            }
-        });
+    public synchronized void unregister(Listener listener) {
+        for (List<EventHandler> bucket : this.buckets) {
+            bucket.removeIf(handler -> listener.equals(handler.getListener()));
+        }
+
+        rebuildIndex();
     }
 
     /**
-     * Returns all the watching event handlers specific to this event.
+     * Returns all the watching event handlers for this event, including those watching its supertypes.
      * @param event the event
-     * @return list of all matching event handlers
+     * @return priority ordered array of all matching event handlers
      */
-    public List<EventHandler> getHandlersFor(Event event) {
+    public EventHandler[] getHandlersFor(Event event) {
+        if (event instanceof PacketEvent) {
+            return getHandlersFor(((PacketEvent<?>) event).getPacket());
+        }
+
+        return this.index.forEvent(event.getClass());
+    }
+
+    /**
+     * Returns all the event handlers watching packet events for this packet, including those watching its
+     * supertypes and those watching the supertypes of packet events.
+     * @param packet the packet
+     * @return priority ordered array of all matching event handlers
+     */
+    public EventHandler[] getHandlersFor(Packet<?> packet) {
+        return this.index.forPacket(packet.getClass());
+    }
+
+    /**
+     * Returns every registered event handler, from the highest priority to the lowest.
+     * @return a new list of the handlers
+     */
+    public List<EventHandler> getHandlers() {
         List<EventHandler> list = new ArrayList<>();
+        for (int i = this.buckets.size() - 1; i >= 0; i--) {
+            list.addAll(this.buckets.get(i));
+        }
+
+        return list;
+    }
+
+    /**
+     * Returns whether any event handlers are watching packet events for this packet class.
+     * @param packetClass the packet class
+     * @return true if the packet has subscribers
+     */
+    public boolean hasHandlersFor(Class<?> packetClass) {
+        return this.index.forPacket(packetClass).length > 0;
+    }
+
+    /**
+     * Rebuilds the handler index from the registered handlers, in priority order.
+     */
+    private void rebuildIndex() {
+        Map<Class<?>, List<EventHandler>> events = new LinkedHashMap<>();
+        Map<Class<?>, List<EventHandler>> packets = new LinkedHashMap<>();
 
-        this.handlers.keySet().forEach(handler -> {
-            if (handler.handlesEvent(event.getClass())) {
-                list.add(handler);
+        for (int i = this.buckets.size() - 1; i >= 0; i--) {
+            for (EventHandler handler : this.buckets.get(i)) {
+                if (handler.getPacketClass() != null) {
+                    packets.computeIfAbsent(handler.getPacketClass(), k -> new ArrayList<>()).add(handler);
+                } else {
+                    events.computeIfAbsent(handler.getEventClass(), k -> new ArrayList<>()).add(handler);
+                }
             }
-        });
+        }
 
-        return list;
+        this.index = new HandlerIndex(freeze(events), freeze(packets));
     }
 
-    public List<EventHandler> getHandlersFor(Packet<?> packet) {
-        List<EventHandler> list = new ArrayList<>();
+    private static Map<Class<?>, EventHandler[]> freeze(Map<Class<?>, List<EventHandler>> map) {
+        ImmutableMap.Builder<Class<?>, EventHandler[]> builder = ImmutableMap.builder();
+        map.forEach((clazz, list) -> builder.put(clazz, list.toArray(new EventHandler[list.size()])));
+        return builder.build();
+    }
 
-        this.handlers.keySet().forEach(handler -> {
-            if (handler.handlesEvent(PacketEvent.class)
-                    && handler.handlesPacket(packet)) {
-                list.add(handler);
+    /**
+     * Returns the executor of a handler already registered for the method, or binds a new one. The executors take
+     * the listener as an argument, so they can be shared by every listener of the same class.
+     * @param method the handler method
+     * @return the executor
+     */
+    private EventExecutor executorFor(Method method) {
+        for (List<EventHandler> bucket : this.buckets) {
+            for (EventHandler handler : bucket) {
+                if (handler.getMethod().equals(method)) {
+                    return handler.getExecutor();
+                }
             }
-        });
+        }
 
-        return list;
+        return EventExecutor.create(method);
     }
 
     /**
@@ -118,4 +216,73 @@ public class ListenerRegistry {
         return method.getAnnotation(Subscribe.class);
     }
 
+    /**
+     * A snapshot of the registered handlers, along with the hierarchy resolutions made against it.
+     */
+    private static final class HandlerIndex {
+
+        private final Map<Class<?>, EventHandler[]> events;
+        private final Map<Class<?>, EventHandler[]> packets;
+
+        private final ConcurrentMap<Class<?>, EventHandler[]> resolvedEvents = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Class<?>, EventHandler[]> resolvedPackets = new ConcurrentHashMap<>();
+
+        private HandlerIndex(Map<Class<?>, EventHandler[]> events, Map<Class<?>, EventHandler[]> packets) {
+            this.events = events;
+            this.packets = packets;
+        }
+
+        private EventHandler[] forEvent(Class<?> eventClass) {
+            EventHandler[] resolved = this.resolvedEvents.get(eventClass);
+            if (resolved == null) {
+                resolved = this.resolvedEvents.computeIfAbsent(eventClass, this::resolveEvent);
+            }
+
+            return resolved;
+        }
+
+        private EventHandler[] forPacket(Class<?> packetClass) {
+            EventHandler[] resolved = this.resolvedPackets.get(packetClass);
+            if (resolved == null) {
+                resolved = this.resolvedPackets.computeIfAbsent(packetClass, this::resolvePacket);
+            }
+
+            return resolved;
+        }
+
+        private EventHandler[] resolveEvent(Class<?> eventClass) {
+            List<EventHandler> list = new ArrayList<>();
+            collect(this.events, eventClass, list);
+            return sort(list);
+        }
+
+        private EventHandler[] resolvePacket(Class<?> packetClass) {
+            List<EventHandler> list = new ArrayList<>();
+            collect(this.packets, packetClass, list);
+            collect(this.events, PacketEvent.class, list);
+            return sort(list);
+        }
+
+        private static void collect(Map<Class<?>, EventHandler[]> map, Class<?> clazz, List<EventHandler> list) {
+            for (Class<?> type : TypeToken.of(clazz).getTypes().rawTypes()) {
+                EventHandler[] declared = map.get(type);
+                if (declared != null) {
+                    for (EventHandler handler : declared) {
+                        list.add(handler);
+                    }
+                }
+            }
+        }
+
+        private static EventHandler[] sort(List<EventHandler> list) {
+            if (list.isEmpty()) {
+                return NO_HANDLERS;
+            }
+
+            list.sort(new EventPriorityComparator());
+            return list.toArray(new EventHandler[list.size()]);
+        }
+
+    }
+
 }
@@ -48,4 +48,12 @@ public @interface Subscribe {
      */
     boolean ignoreCancelled() default false;
 
+    /**
+     * Returns whether the event handler is safe to call away from the thread firing the event. Events fired
+     * asynchronously are only handed to the event worker pool when every handler for them is async-safe. By
+     * default, this is false.
+     * @return true if the handler is async-safe
+     */
+    boolean async() default false;
+
 }
@@ -25,67 +25,190 @@
 package org.poweredrails.rails.net;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.epoll.EpollChannelOption;
+import org.poweredrails.rails.concurrent.ScheduledQueueExecutor;
+import org.poweredrails.rails.net.admission.AdmissionController;
 import org.poweredrails.rails.net.channel.ServerChannelInitializer;
+import org.poweredrails.rails.net.channel.TransportType;
 import org.poweredrails.rails.net.handler.HandlerRegistry;
+import org.poweredrails.rails.net.handler.status.ServerStatus;
 import org.poweredrails.rails.net.packet.registry.PacketRegistry;
 import org.poweredrails.rails.net.session.SessionManager;
+import org.poweredrails.rails.util.auth.SessionServerClient;
+import org.poweredrails.rails.util.auth.SessionServerSettings;
 
 import java.net.SocketAddress;
 import java.util.logging.Logger;
 
 public class NetworkManager {
 
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 256;
+
     private final Logger logger;
 
+    private final TransportType transport;
+    private final int acceptors;
+
     private final ServerBootstrap nettyBootstrap  = new ServerBootstrap();
-    private final EventLoopGroup nettyBossGroup = new NioEventLoopGroup();
-    private final EventLoopGroup nettyWorkerGroup = new NioEventLoopGroup();
+    private final EventLoopGroup nettyBossGroup;
+    private final EventLoopGroup nettyWorkerGroup;
+
+    private final SessionManager sessionManager;
+    private final SessionServerClient sessionServerClient;
+    private final ServerStatus status = new ServerStatus();
 
-    public NetworkManager(Logger logger) {
+    /**
+     * Creates a new network manager running on the best available transport.
+     * @param logger logger
+     * @param scheduler the executor queued logins are admitted on
+     */
+    public NetworkManager(Logger logger, ScheduledQueueExecutor scheduler) {
+        this(logger, TransportType.best(true), 1, 0, scheduler);
+    }
+
+    /**
+     * Creates a new network manager running on the given transport.
+     * @param logger logger
+     * @param transport the socket transport to use
+     * @param bossThreads the amount of threads accepting connections
+     * @param workerThreads the amount of threads handling connections, or 0 to use netty's default
+     * @param scheduler the executor queued logins are admitted on
+     */
+    public NetworkManager(Logger logger, TransportType transport, int bossThreads, int workerThreads,
+                          ScheduledQueueExecutor scheduler) {
+        this(logger, transport, bossThreads, workerThreads, false, DEFAULT_COMPRESSION_THRESHOLD,
+                SessionServerSettings.DEFAULT, new AdmissionController(scheduler, 20, 20, 40, 1000));
+    }
+
+    /**
+     * Creates a new network manager running on the given transport.
+     *
+     * <p>If reusePort is set and the transport supports it, one listening socket is bound per boss thread using
+     * SO_REUSEPORT, so the kernel spreads incoming connections across every boss event loop.</p>
+     *
+     * @param logger logger
+     * @param transport the socket transport to use
+     * @param bossThreads the amount of threads accepting connections
+     * @param workerThreads the amount of threads handling connections, or 0 to use netty's default
+     * @param reusePort true to bind a listening socket per boss thread
+     * @param compressionThreshold the size in bytes at which packets start being compressed, or -1 to disable
+     *                             compression
+     * @param sessionServer the settings used to verify logins with the session server
+     * @param admissionController the controller limiting how fast logins are accepted
+     */
+    public NetworkManager(Logger logger, TransportType transport, int bossThreads, int workerThreads,
+                          boolean reusePort, int compressionThreshold, SessionServerSettings sessionServer,
+                          AdmissionController admissionController) {
         this.logger = logger;
+        this.transport = transport;
+
+        if (reusePort && !transport.supportsReusePort()) {
+            this.logger.warning("SO_REUSEPORT is not supported by the " + transport.getName()
+                    + " transport, binding a single acceptor.");
+            reusePort = false;
+        }
+
+        this.acceptors = reusePort ? Math.max(1, bossThreads) : 1;
+
+        this.nettyBossGroup = transport.newEventLoopGroup(bossThreads);
+        this.nettyWorkerGroup = transport.newEventLoopGroup(workerThreads);
+
+        this.logger.info(String.format("Using %s transport (boss threads: %d, worker threads: %s, acceptors: %d)",
+                transport.getName(), bossThreads, workerThreads == 0 ? "default" : workerThreads, this.acceptors));
 
         PacketRegistry packetRegistry = new PacketRegistry();
-        HandlerRegistry handlerRegistry = new HandlerRegistry();
-        SessionManager sessionManager = new SessionManager();
+        this.sessionServerClient = new SessionServerClient(this.nettyWorkerGroup, transport, sessionServer);
+
+        HandlerRegistry handlerRegistry = new HandlerRegistry(compressionThreshold, this.sessionServerClient,
+                admissionController, this.status);
+        this.sessionManager = new SessionManager(packetRegistry, this.status);
         this.nettyBootstrap
                 .group(this.nettyBossGroup, this.nettyWorkerGroup)
-                .channel(NioServerSocketChannel.class)
+                .channel(transport.getServerChannelClass())
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
                 .childOption(ChannelOption.TCP_NODELAY, true)
                 .childOption(ChannelOption.SO_KEEPALIVE, true)
                 .childHandler(new ServerChannelInitializer(
-                        this.logger, sessionManager, packetRegistry, handlerRegistry));
+                        this.logger, this.sessionManager, packetRegistry, handlerRegistry, this.status));
+
+        if (this.acceptors > 1) {
+            this.nettyBootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
     }
 
     /**
      * Binds the channel to the provided address.
+     *
+     * <p>When SO_REUSEPORT is in use, a listening socket is bound for every acceptor. Each bind registers its
+     * channel on the next boss event loop, so every acceptor is owned by its own thread.</p>
+     *
      * @param socketAddress address to bind to
-     * @return result
+     * @return result of the first bind
      */
     public ChannelFuture bindTo(final SocketAddress socketAddress) {
-        return this.nettyBootstrap.bind(socketAddress).addListener(f -> {
+        ChannelFuture future = this.nettyBootstrap.bind(socketAddress).addListener(f -> {
             if (f.isSuccess()) {
                 onBindSuccess(socketAddress);
             } else {
                 onBindFailure(socketAddress, f.cause());
             }
         });
+
+        for (int i = 1; i < this.acceptors; i++) {
+            this.nettyBootstrap.bind(socketAddress).addListener(f -> {
+                if (!f.isSuccess()) {
+                    onBindFailure(socketAddress, f.cause());
+                }
+            });
+        }
+
+        return future;
+    }
+
+    /**
+     * Returns the socket transport this network manager is running on.
+     * @return transport type
+     */
+    public TransportType getTransport() {
+        return this.transport;
+    }
+
+    /**
+     * Returns the session manager holding every connected session.
+     * @return session manager
+     */
+    public SessionManager getSessionManager() {
+        return this.sessionManager;
+    }
+
+    /**
+     * Returns the status shown in the client's server list.
+     * @return server status
+     */
+    public ServerStatus getServerStatus() {
+        return this.status;
     }
 
     /**
      * Shuts down the channel gracefully.
      */
     public void shutdown() {
+        this.sessionServerClient.close();
         this.nettyWorkerGroup.shutdownGracefully();
         this.nettyBossGroup.shutdownGracefully();
     }
 
     private void onBindSuccess(SocketAddress address) {
-        this.logger.info("Bound to address: " + address);
+        if (this.acceptors > 1) {
+            this.logger.info("Bound to address: " + address + " (" + this.acceptors + " acceptors)");
+        } else {
+            this.logger.info("Bound to address: " + address);
+        }
         // Call "BindServerEvent"
     }
 
@@ -0,0 +1,176 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.admission;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import org.json.JSONObject;
+import org.poweredrails.rails.concurrent.ScheduledQueueExecutor;
+import org.poweredrails.rails.net.packet.login.PacketSendDisconnect;
+import org.poweredrails.rails.net.session.Session;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how fast logins are accepted, so a wave of players reconnecting at once doesn't slow the server down for
+ * the players already online.
+ *
+ * <p>Logins are throttled per address, while status pings are left alone so server lists can refresh freely. Logins
+ * are admitted at a fixed rate across the whole server, and logins
+ * arriving faster than that wait in a queue, in the order they arrived. Once the queue is full, further logins are
+ * disconnected and told how many players are waiting.</p>
+ */
+public class AdmissionController {
+
+    private final ConnectionThrottle loginThrottle;
+    private final TokenBucket loginBucket;
+    private final int maxQueueLength;
+
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueLength = new AtomicInteger();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a new admission controller.
+     * @param executor the executor queued logins are admitted on
+     * @param loginsPerAddress the maximum amount of logins each address may attempt every ten seconds
+     * @param loginsPerSecond the amount of logins admitted each second
+     * @param loginBurst the amount of logins which can be admitted at once after a quiet period
+     * @param maxQueueLength the maximum amount of logins waiting to be admitted
+     */
+    public AdmissionController(ScheduledQueueExecutor executor, int loginsPerAddress, double loginsPerSecond,
+                               int loginBurst, int maxQueueLength) {
+        this.loginThrottle = new ConnectionThrottle(loginsPerAddress, 10, TimeUnit.SECONDS, 4096);
+        this.loginBucket = new TokenBucket(loginsPerSecond, loginBurst);
+        this.maxQueueLength = maxQueueLength;
+
+        executor.enqueueAsRepeating(this::drain, 50, 50, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks whether a session may start logging in, based on how many logins its address has attempted recently.
+     * If the address is over its limit, the session is disconnected.
+     * @param session the session which asked to log in
+     * @return true if the login may go ahead
+     */
+    public boolean acceptLogin(Session session) {
+        SocketAddress address = session.getChannel().remoteAddress();
+        if (!(address instanceof InetSocketAddress)) {
+            return true;
+        }
+
+        if (this.loginThrottle.tryAcquire(((InetSocketAddress) address).getAddress())) {
+            return true;
+        }
+
+        disconnect(session.getChannel(), "You are logging in too fast, please wait a moment before reconnecting.");
+        return false;
+    }
+
+    /**
+     * Admits a login, running it straight away if the login rate allows and nobody is waiting, or queuing it
+     * otherwise. If the queue is full, the session is disconnected.
+     * @param session the session logging in
+     * @param login the rest of the login, run once admitted
+     */
+    public void admit(Session session, Runnable login) {
+        if (this.queueLength.get() == 0 && this.loginBucket.tryAcquire()) {
+            this.admitted.increment();
+            login.run();
+            return;
+        }
+
+        int position = this.queueLength.incrementAndGet();
+        if (position > this.maxQueueLength) {
+            this.queueLength.decrementAndGet();
+            this.rejected.increment();
+
+            disconnect(session.getChannel(), "The server is busy, " + (position - 1)
+                    + " players are waiting to log in. Please try again shortly.");
+            return;
+        }
+
+        this.queue.add(() -> {
+            if (session.getChannel().isActive()) {
+                login.run();
+            }
+        });
+    }
+
+    private void drain() {
+        while (this.queueLength.get() > 0 && this.loginBucket.tryAcquire()) {
+            Runnable login = this.queue.poll();
+            if (login == null) {
+                return;
+            }
+
+            this.queueLength.decrementAndGet();
+            this.admitted.increment();
+            login.run();
+        }
+    }
+
+    private static void disconnect(Channel channel, String reason) {
+        channel.writeAndFlush(new PacketSendDisconnect("{\"text\":" + JSONObject.quote(reason) + "}"))
+                .addListener(ChannelFutureListener.CLOSE);
+    }
+
+    /**
+     * Returns the amount of logins waiting to be admitted.
+     * @return queue length
+     */
+    public int getQueueLength() {
+        return this.queueLength.get();
+    }
+
+    public long getAdmittedLogins() {
+        return this.admitted.sum();
+    }
+
+    /**
+     * Returns the amount of logins disconnected because the queue was full.
+     * @return rejected login count
+     */
+    public long getRejectedLogins() {
+        return this.rejected.sum();
+    }
+
+    /**
+     * Returns the amount of logins refused for coming too often from one address.
+     * @return throttled login count
+     */
+    public long getThrottledLogins() {
+        return this.loginThrottle.getRejected();
+    }
+
+}
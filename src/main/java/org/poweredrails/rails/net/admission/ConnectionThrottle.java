@@ -0,0 +1,111 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.admission;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how many connections each address may open within a time window.
+ *
+ * <p>Addresses are hashed into a fixed array of slots, each packing the current window and the amount of connections
+ * seen in it into a single long, so checking an address allocates nothing and never locks. Addresses sharing a slot
+ * share its limit, which only ever makes the throttle stricter.</p>
+ */
+public class ConnectionThrottle {
+
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    private final int limit;
+    private final long windowNanos;
+    private final long epoch = System.nanoTime();
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a new connection throttle.
+     * @param limit the maximum amount of connections from one address each window
+     * @param window the length of a window
+     * @param unit the time unit the window is specified in
+     * @param slots the amount of slots addresses are hashed into, rounded up to a power of two
+     */
+    public ConnectionThrottle(int limit, long window, TimeUnit unit, int slots) {
+        int size = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.limit = (int) Math.min(limit, COUNT_MASK);
+        this.windowNanos = unit.toNanos(window);
+    }
+
+    /**
+     * Records a connection from an address.
+     * @param address the address connecting
+     * @return true if the address is within its limit, false if the connection should be refused
+     */
+    public boolean tryAcquire(InetAddress address) {
+        int slot = hash(address) & this.mask;
+        long window = (System.nanoTime() - this.epoch) / this.windowNanos;
+
+        while (true) {
+            long value = this.slots.get(slot);
+
+            long next;
+            if (value >>> COUNT_BITS != window) {
+                next = window << COUNT_BITS | 1;
+            } else if ((value & COUNT_MASK) >= this.limit) {
+                this.rejected.increment();
+                return false;
+            } else {
+                next = value + 1;
+            }
+
+            if (this.slots.compareAndSet(slot, value, next)) {
+                return true;
+            }
+        }
+    }
+
+    private static int hash(InetAddress address) {
+        int hash = Arrays.hashCode(address.getAddress());
+        return hash ^ hash >>> 16;
+    }
+
+    /**
+     * Returns the amount of connections refused for exceeding the limit.
+     * @return rejection count
+     */
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+}
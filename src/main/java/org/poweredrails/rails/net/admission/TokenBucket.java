@@ -0,0 +1,79 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket, refilling at a fixed rate up to a maximum burst.
+ *
+ * <p>Rather than counting tokens, the bucket tracks the time at which it will next be full, so taking a token is a
+ * single compare and set.</p>
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    private final AtomicLong fullAt;
+
+    /**
+     * Creates a new token bucket, starting full.
+     * @param perSecond the amount of tokens added each second
+     * @param burst the maximum amount of tokens the bucket holds
+     */
+    public TokenBucket(double perSecond, int burst) {
+        if (perSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive!");
+        }
+
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+        this.burstNanos = this.intervalNanos * burst;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes a token from the bucket if one is available.
+     * @return true if a token was taken
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+
+        while (true) {
+            long fullAt = this.fullAt.get();
+            long next = Math.max(fullAt - now, 0) + this.intervalNanos;
+
+            if (next > this.burstNanos) {
+                return false;
+            }
+
+            if (this.fullAt.compareAndSet(fullAt, now + next)) {
+                return true;
+            }
+        }
+    }
+
+}
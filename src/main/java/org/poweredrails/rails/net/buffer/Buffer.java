@@ -231,7 +231,9 @@ public class Buffer {
      */
     public byte[] readByteArray() {
         int length = this.readVarInt(2);
-        return this.buffer.readBytes(length).array();
+        byte[] array = new byte[length];
+        this.buffer.readBytes(array);
+        return array;
     }
 
     /**
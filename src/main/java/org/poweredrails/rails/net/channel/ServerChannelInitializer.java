@@ -28,8 +28,10 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
 import org.poweredrails.rails.net.handler.HandlerRegistry;
+import org.poweredrails.rails.net.handler.status.ServerStatus;
 import org.poweredrails.rails.net.packet.FrameDecoder;
 import org.poweredrails.rails.net.packet.FrameEncoder;
+import org.poweredrails.rails.net.packet.LegacyPingHandler;
 import org.poweredrails.rails.net.packet.NoopHandler;
 import org.poweredrails.rails.net.packet.PacketDecoder;
 import org.poweredrails.rails.net.packet.PacketEncoder;
@@ -46,6 +48,7 @@ public class ServerChannelInitializer extends ChannelInitializer<SocketChannel>
 
     private final PacketRegistry packetRegistry;
     private final HandlerRegistry handlerRegistry;
+    private final ServerStatus status;
 
     private SessionManager sessionManager;
 
@@ -55,13 +58,15 @@ public class ServerChannelInitializer extends ChannelInitializer<SocketChannel>
      * @param sessionManager session manager
      * @param packetRegistry packet registry
      * @param handlerRegistry handler registry
+     * @param status the status to answer legacy server list pings with
      */
     public ServerChannelInitializer(Logger logger, SessionManager sessionManager, PacketRegistry packetRegistry,
-                                    HandlerRegistry handlerRegistry) {
+                                    HandlerRegistry handlerRegistry, ServerStatus status) {
         this.logger = logger;
         this.sessionManager = sessionManager;
         this.packetRegistry = packetRegistry;
         this.handlerRegistry = handlerRegistry;
+        this.status = status;
     }
 
     @Override
@@ -70,6 +75,7 @@ public class ServerChannelInitializer extends ChannelInitializer<SocketChannel>
 
         ChannelPipeline pl = socketChannel.pipeline();
 
+        pl.addLast("legacy_ping", new LegacyPingHandler(this.status));
         pl.addLast("encryption", new NoopHandler());
 
         pl.addLast("frame_decoder", new FrameDecoder());
@@ -78,7 +84,7 @@ public class ServerChannelInitializer extends ChannelInitializer<SocketChannel>
         pl.addLast("decoder", new PacketDecoder());
         pl.addLast("encoder", new PacketEncoder(this.sessionManager, this.packetRegistry));
 
-        pl.addLast("handler", new PacketHandler(this.logger, session, this.packetRegistry,
+        pl.addLast("handler", new PacketHandler(this.logger, session, this.sessionManager, this.packetRegistry,
                 this.handlerRegistry));
     }
 
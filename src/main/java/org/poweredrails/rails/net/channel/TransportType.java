@@ -0,0 +1,126 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.channel;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ * The socket transports the server is able to run on.
+ */
+public enum TransportType {
+
+    EPOLL("epoll", EpollServerSocketChannel.class, EpollSocketChannel.class) {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads) {
+            return new EpollEventLoopGroup(threads);
+        }
+
+        @Override
+        public boolean supportsReusePort() {
+            return true;
+        }
+    },
+
+    NIO("nio", NioServerSocketChannel.class, NioSocketChannel.class) {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads) {
+            return new NioEventLoopGroup(threads);
+        }
+    };
+
+    private final String name;
+    private final Class<? extends ServerChannel> serverChannelClass;
+    private final Class<? extends Channel> channelClass;
+
+    TransportType(String name, Class<? extends ServerChannel> serverChannelClass,
+                  Class<? extends Channel> channelClass) {
+        this.name = name;
+        this.serverChannelClass = serverChannelClass;
+        this.channelClass = channelClass;
+    }
+
+    /**
+     * Creates a new event loop group for this transport.
+     * @param threads the amount of threads, or 0 to use netty's default
+     * @return the event loop group
+     */
+    public abstract EventLoopGroup newEventLoopGroup(int threads);
+
+    /**
+     * Returns whether this transport is able to bind several sockets to the same port with SO_REUSEPORT.
+     * @return true if SO_REUSEPORT is supported
+     */
+    public boolean supportsReusePort() {
+        return false;
+    }
+
+    /**
+     * Returns the server channel class for this transport.
+     * @return server channel class
+     */
+    public Class<? extends ServerChannel> getServerChannelClass() {
+        return this.serverChannelClass;
+    }
+
+    /**
+     * Returns the client channel class for this transport, used for outgoing connections.
+     * @return channel class
+     */
+    public Class<? extends Channel> getChannelClass() {
+        return this.channelClass;
+    }
+
+    /**
+     * Returns the name of this transport.
+     * @return transport name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the best transport available on this machine, preferring the native epoll transport and falling back
+     * to NIO.
+     * @param allowNative false to always use NIO
+     * @return transport type
+     */
+    public static TransportType best(boolean allowNative) {
+        if (allowNative && Epoll.isAvailable()) {
+            return EPOLL;
+        }
+
+        return NIO;
+    }
+
+}
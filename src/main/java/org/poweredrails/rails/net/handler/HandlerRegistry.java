@@ -25,10 +25,14 @@
 package org.poweredrails.rails.net.handler;
 
 import org.poweredrails.rails.Main;
+import org.poweredrails.rails.event.EventBus;
+import org.poweredrails.rails.net.admission.AdmissionController;
 import org.poweredrails.rails.net.handler.handshake.HandshakePacketHandler;
 import org.poweredrails.rails.net.handler.login.LoginPacketHandler;
+import org.poweredrails.rails.net.handler.status.ServerStatus;
 import org.poweredrails.rails.net.handler.status.StatusPacketHandler;
 import org.poweredrails.rails.net.packet.Packet;
+import org.poweredrails.rails.util.auth.SessionServerClient;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -39,11 +43,17 @@ public class HandlerRegistry {
 
     /**
      * Registers any packet handlers.
+     * @param compressionThreshold the size in bytes at which packets start being compressed, or -1 to disable
+     *                             compression
+     * @param sessionServer the client used to verify logins with the session server
+     * @param admissionController the controller limiting how fast logins are admitted
+     * @param status the status to respond to server list pings with
      */
-    public HandlerRegistry() {
-        this.handlerList.add(new HandshakePacketHandler());
-        this.handlerList.add(new StatusPacketHandler());
-        this.handlerList.add(new LoginPacketHandler());
+    public HandlerRegistry(int compressionThreshold, SessionServerClient sessionServer,
+                           AdmissionController admissionController, ServerStatus status) {
+        this.handlerList.add(new HandshakePacketHandler(admissionController));
+        this.handlerList.add(new StatusPacketHandler(status));
+        this.handlerList.add(new LoginPacketHandler(compressionThreshold, sessionServer, admissionController));
     }
 
     /**
@@ -55,8 +65,13 @@ public class HandlerRegistry {
         Class<T> clazz = packet.getHandlerClass();
         T handler = getHandler(clazz);
 
-        // If the handler isn't null AND when firing the packet event, it wasn't cancelled...
-        if (handler != null && !Main.getEventBus().firePacket(packet.getSender(), packet)) {
+        if (handler == null) {
+            return;
+        }
+
+        // If nothing is listening for the packet, or when firing the packet event it wasn't cancelled...
+        EventBus eventBus = Main.getEventBus();
+        if (!eventBus.hasPacketSubscribers(packet.getClass()) || !eventBus.firePacket(packet.getSender(), packet)) {
             // have the handler handle it
             packet.handle(handler);
         }
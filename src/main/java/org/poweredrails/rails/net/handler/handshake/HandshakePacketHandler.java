@@ -24,6 +24,7 @@
  */
 package org.poweredrails.rails.net.handler.handshake;
 
+import org.poweredrails.rails.net.admission.AdmissionController;
 import org.poweredrails.rails.net.packet.handshake.PacketReceiveHandshake;
 import org.poweredrails.rails.net.packet.login.PacketSendDisconnect;
 import org.poweredrails.rails.net.session.Session;
@@ -35,6 +36,12 @@ public class HandshakePacketHandler {
 
     private final Logger logger = Logger.getLogger("Rails");
 
+    private final AdmissionController admissionController;
+
+    public HandshakePacketHandler(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
     /**
      * Handles a handshake packet.
      * @param packet handshake packet
@@ -55,6 +62,11 @@ public class HandshakePacketHandler {
         if (protocol != 47) {
             sender.sendPacket( new PacketSendDisconnect("We don't support that protocol, sorry. (" + protocol + ")") );
             this.logger.info("Session " + sender + " was kicked - outdated protocol.");
+            return;
+        }
+
+        if (state == SessionStateEnum.LOGIN && !this.admissionController.acceptLogin(sender)) {
+            this.logger.info("Session " + sender + " was kicked - logging in too fast.");
         }
     }
 
@@ -24,31 +24,27 @@
  */
 package org.poweredrails.rails.net.handler.login;
 
+import io.netty.channel.Channel;
 import org.json.JSONException;
-import org.json.JSONObject;
+import org.poweredrails.rails.Main;
+import org.poweredrails.rails.net.admission.AdmissionController;
 import org.poweredrails.rails.net.packet.login.PacketReceiveEncryptResponse;
 import org.poweredrails.rails.net.packet.login.PacketReceiveLoginStart;
 import org.poweredrails.rails.net.packet.login.PacketSendEncryptRequest;
 import org.poweredrails.rails.net.packet.login.PacketSendLoginSuccess;
+import org.poweredrails.rails.net.packet.login.PacketSendSetCompression;
 import org.poweredrails.rails.net.session.Session;
-import org.poweredrails.rails.util.UUIDUtil;
+import org.poweredrails.rails.net.session.SessionStateEnum;
 import org.poweredrails.rails.util.auth.Encryption;
+import org.poweredrails.rails.util.auth.GameProfile;
+import org.poweredrails.rails.util.auth.LoginCrypto;
+import org.poweredrails.rails.util.auth.SessionServerClient;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.math.BigInteger;
-import java.net.URL;
-import java.net.URLConnection;
 import java.security.KeyPair;
-import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.util.Arrays;
-import java.util.UUID;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.crypto.Cipher;
-import javax.crypto.SecretKey;
-import javax.crypto.spec.SecretKeySpec;
 
 public class LoginPacketHandler {
 
@@ -59,10 +55,30 @@ public class LoginPacketHandler {
     private final byte[] publicKey;
     private final PrivateKey privateKey;
 
-    public LoginPacketHandler() {
+    private final int compressionThreshold;
+    private final SessionServerClient sessionServer;
+    private final AdmissionController admissionController;
+    private final LoginCrypto crypto;
+
+    /**
+     * Creates a new login packet handler.
+     * @param compressionThreshold the size in bytes at which packets start being compressed, or -1 to disable
+     *                             compression
+     * @param sessionServer the client used to verify logins with the session server
+     * @param admissionController the controller limiting how fast logins are admitted
+     */
+    public LoginPacketHandler(int compressionThreshold, SessionServerClient sessionServer,
+                              AdmissionController admissionController) {
+        this.compressionThreshold = compressionThreshold;
+        this.sessionServer = sessionServer;
+        this.admissionController = admissionController;
+
         this.keyPair    = Encryption.generateKeyPair();
         this.publicKey  = Encryption.toX509(this.keyPair.getPublic()).getEncoded();
         this.privateKey = this.keyPair.getPrivate();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.crypto = new LoginCrypto(this.privateKey, this.publicKey, Math.max(1, cores / 2), 1024);
     }
 
     /**
@@ -73,16 +89,18 @@ public class LoginPacketHandler {
         this.logger.info("User [" + packet.getName() + "] logging in...");
 
         final Session sender = packet.getSender();
+        sender.setVerifyUsername(packet.getName());
 
-        String sessionId = sender.getSessionId();
-        byte[] publicKey = Encryption.toX509(this.keyPair.getPublic()).getEncoded();
-        byte[] verifyKey = Encryption.generateToken(4);
+        // Encryption and authentication only start once the login has been admitted
+        this.admissionController.admit(sender, () -> {
+            String sessionId = sender.getSessionId();
+            byte[] verifyKey = Encryption.generateToken(4);
 
-        sender.setVerifyUsername(packet.getName());
-        sender.setVerifyToken(verifyKey);
+            sender.setVerifyToken(verifyKey);
 
-        PacketSendEncryptRequest response = new PacketSendEncryptRequest(sessionId, publicKey, verifyKey);
-        sender.sendPacket(response);
+            PacketSendEncryptRequest response = new PacketSendEncryptRequest(sessionId, this.publicKey, verifyKey);
+            sender.sendPacket(response);
+        });
     }
 
     /**
@@ -91,85 +109,88 @@ public class LoginPacketHandler {
      */
     public void onEncryptResponse(PacketReceiveEncryptResponse packet) {
         final Session sender = packet.getSender();
+        final Channel channel = sender.getChannel();
+
+        // Stop reading until encryption is enabled, anything read before then would be decoded as plain text
+        channel.config().setAutoRead(false);
+
+        this.crypto.decrypt(sender.getSessionId(), packet.getSharedSecret(), packet.getVerifyToken())
+                .whenComplete((result, e) -> channel.eventLoop().execute(() -> {
+                    if (e != null) {
+                        this.logger.log(Level.SEVERE, "An exception occurred while validating a login!", e);
+                        channel.close();
+                        return;
+                    }
+
+                    if (!Arrays.equals(result.getVerifyToken(), sender.getVerifyToken())) {
+                        // TODO: Send disconnect packet
+                        // PacketSendDisconnect response = new PacketSendDisconnect("...");
+                        // sender.sendPacket(response);
+                        channel.close();
+                        return;
+                    }
+
+                    sender.enableEncryption(result.getSharedSecret());
+                    channel.config().setAutoRead(true);
+
+                    authenticate(sender, result.getServerHash());
+                }));
+    }
 
-        try {
-            Cipher cipher = Cipher.getInstance("RSA");
-
-            cipher.init(Cipher.DECRYPT_MODE, this.privateKey);
-            final SecretKey sharedSecret = new SecretKeySpec(cipher.doFinal(packet.getSharedSecret()), "AES");
+    private void authenticate(Session sender, String hash) {
+        final Channel channel = sender.getChannel();
+        String username = sender.getVerifyUsername();
 
-            cipher.init(Cipher.DECRYPT_MODE, this.privateKey);
-            final byte[] verifyToken = cipher.doFinal(packet.getVerifyToken());
+        // The session server reply completes on whichever loop owns the pooled connection, so the rest of the login
+        // runs on the player's own loop, in order with everything else written to the channel
+        this.sessionServer.hasJoined(username, hash).whenComplete((response, error) -> channel.eventLoop().execute(() -> {
+            if (error != null) {
+                this.logger.log(Level.SEVERE, "Failed to authenticate [" + username + "]!", error);
+                channel.close();
+                return;
+            }
 
-            if (!Arrays.equals(verifyToken, sender.getVerifyToken())) {
+            if (response == null) {
                 // TODO: Send disconnect packet
-                // PacketSendDisconnect response = new PacketSendDisconnect("...");
-                // sender.sendPacket(response);
+                this.logger.info("User [" + username + "] failed to verify with the session server.");
                 return;
             }
 
-            sender.enableEncryption(sharedSecret);
-
-            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
-            digest.update(sender.getSessionId().getBytes());
-            digest.update(sharedSecret.getEncoded());
-            digest.update(this.publicKey);
-            String hash = new BigInteger(digest.digest()).toString(16);
-
-            new Thread(() -> {
-                JSONObject response = this.callAPI(sender.getVerifyUsername(), hash);
-
-                String name = null;
-                String id   = null;
-                try {
-                    name = response.getString("name");
-                    id   = response.getString("id");
-                } catch (JSONException e) {
-                    throw new RuntimeException("Failed to parse Mojang JSON response!", e);
-                }
-
-                UUID uuid = UUIDUtil.fromFlatString(id);
-                this.logger.info("Successfully authenticated Player [" + name + ", " + uuid + "].");
-
-                sender.sendPacket(new PacketSendLoginSuccess(uuid, name));
-                // sender.setState(SessionStateEnum.PLAY);
-
-                /*
-                 * x1. LoginSuccess
-                 * ..
-                 * 2. JoinGame
-                 * <enable encryption> NOT IF LOCALHOST
-                 * 3. SetCompression NOT REQUIRED
-                 * ..
-                 * 4. WindowItems (inventory) NOT REQUIRED
-                 * 5. ChunkBulk (world) NOT REQUIRED
-                 * ..
-                 * 6. SpawnPosition
-                 * 7. PositionAndLook (we load into the world here)
-                 */
-            }).start();
-        } catch (Exception e) {
-            throw new RuntimeException("An exception occurred while validating a login!", e);
-        }
-    }
+            GameProfile profile;
+            try {
+                profile = GameProfile.fromJson(response);
+            } catch (JSONException e) {
+                this.logger.log(Level.SEVERE, "Failed to parse Mojang JSON response!", e);
+                channel.close();
+                return;
+            }
+
+            // The cache is only fed from verified logins, it is never consulted in place of the session server
+            Main.getProfileCache().put(profile);
+            this.logger.info("Successfully authenticated Player [" + profile + "].");
 
-    private JSONObject callAPI(String username, String hash) {
-        final String baseUrl = "https://sessionserver.mojang.com/session/minecraft/hasJoined?username=%s&serverId=%s";
-        try {
-            URLConnection connection = new URL(String.format(baseUrl, username, hash)).openConnection();
-
-            final InputStream in = connection.getInputStream();
-            BufferedReader br = new BufferedReader(new InputStreamReader(in));
-            StringBuilder builder = new StringBuilder();
-            String line = null;
-            while ((line = br.readLine()) != null) {
-                builder.append(line).append('\n');
+            if (this.compressionThreshold >= 0) {
+                sender.sendPacket(new PacketSendSetCompression(this.compressionThreshold));
+                sender.enableCompression(this.compressionThreshold);
             }
 
-            return new JSONObject(builder.toString());
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to verify username!", e);
-        }
+            sender.sendPacket(new PacketSendLoginSuccess(profile.getUuid(), profile.getName()));
+            sender.setState(SessionStateEnum.PLAY);
+
+            /*
+             * x1. LoginSuccess
+             * ..
+             * 2. JoinGame
+             * <enable encryption> NOT IF LOCALHOST
+             * x3. SetCompression
+             * ..
+             * 4. WindowItems (inventory) NOT REQUIRED
+             * 5. ChunkBulk (world) NOT REQUIRED
+             * ..
+             * 6. SpawnPosition
+             * 7. PositionAndLook (we load into the world here)
+             */
+        }));
     }
 
 }
@@ -0,0 +1,271 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.handler.status;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.poweredrails.rails.net.buffer.Buffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The status shown in the client's server list, kept encoded as a status response packet so it can be sent to
+ * every ping without being built again.
+ *
+ * <p>Changes mark the status as dirty, and the encoded response is regenerated on the next ping, at most once per
+ * refresh interval, which is a second by default.</p>
+ */
+public class ServerStatus {
+
+    private static final int STATUS_RESPONSE_ID = 0x00;
+    private static final int LEGACY_KICK_ID = 0xFF;
+    private static final String SECTION_SIGN = "\u00a7"; // §
+
+    private final long refreshNanos;
+
+    private volatile String versionName = "1.8.8";
+    private volatile int protocol = 47;
+    private volatile int maxPlayers = 20;
+    private volatile int onlinePlayers;
+    private volatile String motd = "Hello world";
+    private volatile String favicon;
+
+    private volatile boolean dirty = true;
+    private volatile long encodedAt;
+
+    private volatile String json;
+
+    // Guarded by this, so a buffer is never released while a reader is retaining it
+    private ByteBuf encoded = Unpooled.EMPTY_BUFFER;
+    private ByteBuf legacyEncoded = Unpooled.EMPTY_BUFFER;
+    private ByteBuf betaEncoded = Unpooled.EMPTY_BUFFER;
+
+    public ServerStatus() {
+        this(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a new server status.
+     * @param refreshInterval the minimum time between regenerating the encoded response
+     * @param unit the time unit the interval is specified in
+     */
+    public ServerStatus(long refreshInterval, TimeUnit unit) {
+        this.refreshNanos = unit.toNanos(refreshInterval);
+    }
+
+    /**
+     * Returns the encoded status response packet, starting with its id, regenerating it first if the status has
+     * changed. The caller owns the returned buffer and must release it.
+     * @return a retained duplicate of the encoded response
+     */
+    public ByteBuf getEncoded() {
+        refresh();
+
+        synchronized (this) {
+            return this.encoded.duplicate().retain();
+        }
+    }
+
+    /**
+     * Returns the kick packet answering a legacy server list ping, regenerating it first if the status has changed.
+     * The caller owns the returned buffer and must release it.
+     * @param beta true for the format understood by clients older than 1.4, which don't send a ping payload
+     * @return a retained duplicate of the encoded response
+     */
+    public ByteBuf getLegacyEncoded(boolean beta) {
+        refresh();
+
+        synchronized (this) {
+            return (beta ? this.betaEncoded : this.legacyEncoded).duplicate().retain();
+        }
+    }
+
+    /**
+     * Returns the status as JSON, regenerating it first if the status has changed.
+     * @return status json
+     */
+    public String getJson() {
+        refresh();
+        return this.json;
+    }
+
+    private void refresh() {
+        if (!shouldRefresh()) {
+            return;
+        }
+
+        synchronized (this) {
+            if (!shouldRefresh()) {
+                return;
+            }
+
+            this.dirty = false;
+
+            String json = toJson();
+            this.json = json;
+
+            this.encoded.release();
+            this.encoded = encodeResponse(json);
+
+            this.legacyEncoded.release();
+            this.legacyEncoded = encodeLegacy(SECTION_SIGN + "1\u0000" + this.protocol + "\u0000" + this.versionName
+                    + "\u0000" + this.motd + "\u0000" + this.onlinePlayers + "\u0000" + this.maxPlayers);
+
+            this.betaEncoded.release();
+            this.betaEncoded = encodeLegacy(this.motd.replace(SECTION_SIGN, "") + SECTION_SIGN + this.onlinePlayers
+                    + SECTION_SIGN + this.maxPlayers);
+
+            this.encodedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Encodes a status response packet, its id followed by the status json.
+     * @param json the status json
+     * @return the encoded packet
+     */
+    private static ByteBuf encodeResponse(String json) {
+        ByteBuf buf = Unpooled.directBuffer();
+        Buffer out = new Buffer(buf);
+        out.writeVarInt(STATUS_RESPONSE_ID, 2);
+        out.writeString(json);
+
+        return buf;
+    }
+
+    /**
+     * Encodes a legacy kick packet, a 0xFF id followed by the message length in chars and the UTF-16BE message.
+     * @param message the kick message
+     * @return the encoded packet
+     */
+    private static ByteBuf encodeLegacy(String message) {
+        ByteBuf buf = Unpooled.directBuffer(3 + message.length() * 2);
+        buf.writeByte(LEGACY_KICK_ID);
+        buf.writeShort(message.length());
+        buf.writeBytes(message.getBytes(StandardCharsets.UTF_16BE));
+
+        return buf;
+    }
+
+    private boolean shouldRefresh() {
+        return this.json == null || this.dirty && System.nanoTime() - this.encodedAt >= this.refreshNanos;
+    }
+
+    private String toJson() {
+        try {
+            JSONObject json = new JSONObject()
+                    .put("version", new JSONObject()
+                            .put("name", this.versionName)
+                            .put("protocol", this.protocol))
+                    .put("players", new JSONObject()
+                            .put("max", this.maxPlayers)
+                            .put("online", this.onlinePlayers)
+                            .put("sample", new JSONArray()))
+                    .put("description", new JSONObject()
+                            .put("text", this.motd));
+
+            if (this.favicon != null) {
+                json.put("favicon", this.favicon);
+            }
+
+            return json.toString();
+        } catch (JSONException e) {
+            throw new RuntimeException("Failed to construct status JSON!", e);
+        }
+    }
+
+    private void markDirty() {
+        this.dirty = true;
+    }
+
+    public String getVersionName() {
+        return this.versionName;
+    }
+
+    public void setVersionName(String versionName) {
+        this.versionName = versionName;
+        markDirty();
+    }
+
+    public int getProtocol() {
+        return this.protocol;
+    }
+
+    public void setProtocol(int protocol) {
+        this.protocol = protocol;
+        markDirty();
+    }
+
+    public int getMaxPlayers() {
+        return this.maxPlayers;
+    }
+
+    public void setMaxPlayers(int maxPlayers) {
+        this.maxPlayers = maxPlayers;
+        markDirty();
+    }
+
+    public int getOnlinePlayers() {
+        return this.onlinePlayers;
+    }
+
+    /**
+     * Sets the amount of players shown as online. Setting the same amount again doesn't regenerate the response.
+     * @param onlinePlayers online player count
+     */
+    public void setOnlinePlayers(int onlinePlayers) {
+        if (this.onlinePlayers != onlinePlayers) {
+            this.onlinePlayers = onlinePlayers;
+            markDirty();
+        }
+    }
+
+    public String getMotd() {
+        return this.motd;
+    }
+
+    public void setMotd(String motd) {
+        this.motd = motd;
+        markDirty();
+    }
+
+    public String getFavicon() {
+        return this.favicon;
+    }
+
+    /**
+     * Sets the server icon.
+     * @param favicon the icon as a data uri, or null for no icon
+     */
+    public void setFavicon(String favicon) {
+        this.favicon = favicon;
+        markDirty();
+    }
+
+}
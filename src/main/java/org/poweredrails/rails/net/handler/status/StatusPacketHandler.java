@@ -24,7 +24,7 @@
  */
 package org.poweredrails.rails.net.handler.status;
 
-import org.json.JSONException;
+import org.poweredrails.rails.Main;
 import org.poweredrails.rails.net.packet.status.PacketReceivePing;
 import org.poweredrails.rails.net.packet.status.PacketReceiveStatusRequest;
 import org.poweredrails.rails.net.packet.status.PacketSendPong;
@@ -37,18 +37,31 @@ public class StatusPacketHandler {
 
     private final Logger logger = Logger.getLogger("Rails");
 
+    private final ServerStatus status;
+
+    /**
+     * Creates a new status packet handler.
+     * @param status the status to respond with
+     */
+    public StatusPacketHandler(ServerStatus status) {
+        this.status = status;
+    }
+
     /**
-     * Handles a status request packet.
+     * Handles a status request packet. Unless something is listening for the response, the pre-encoded response is
+     * sent without building a packet.
      * @param packet status request packet
-     * @throws JSONException if the response JSON failed to construct.
      */
-    public void onStatusRequestPacket(PacketReceiveStatusRequest packet) throws JSONException {
+    public void onStatusRequestPacket(PacketReceiveStatusRequest packet) {
         Session sender = packet.getSender();
 
-        PacketSendStatusResponse response = new PacketSendStatusResponse();
-        sender.sendPacket(response);
+        if (Main.getEventBus().hasPacketSubscribers(PacketSendStatusResponse.class)) {
+            sender.sendPacket(new PacketSendStatusResponse(this.status.getJson()));
+        } else {
+            sender.sendEncoded(this.status.getEncoded());
+        }
 
-        this.logger.info("Responded to a status request.");
+        this.logger.fine("Responded to a status request.");
     }
 
     /**
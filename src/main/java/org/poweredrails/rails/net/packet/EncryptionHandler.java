@@ -25,11 +25,9 @@
 package org.poweredrails.rails.net.packet;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageCodec;
 
-import java.nio.ByteBuffer;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -60,27 +58,37 @@ public class EncryptionHandler extends MessageToMessageCodec<ByteBuf, ByteBuf> {
 
     @Override
     protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
-        ByteBuf buffer = update(msg, this.encryptCipher);
+        ByteBuf buffer = update(ctx, msg, this.encryptCipher);
         out.add(buffer);
     }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
-        ByteBuf buffer = update(msg, this.decryptCipher);
+        ByteBuf buffer = update(ctx, msg, this.decryptCipher);
         out.add(buffer);
     }
 
-    private ByteBuf update(ByteBuf msg, Cipher cipher) {
-        ByteBuffer out = ByteBuffer.allocate(msg.readableBytes());
+    /**
+     * Runs the readable bytes of the message through the cipher, into a buffer obtained from the channel's
+     * allocator. AES/CFB8 is a stream cipher, so the output is always the same length as the input.
+     * @param ctx channel handler context
+     * @param msg the message to encrypt or decrypt
+     * @param cipher the cipher to update
+     * @return the resulting buffer
+     */
+    private ByteBuf update(ChannelHandlerContext ctx, ByteBuf msg, Cipher cipher) {
+        int length = msg.readableBytes();
+        ByteBuf out = ctx.alloc().buffer(length);
 
         try {
-            cipher.update(msg.nioBuffer(), out);
+            int written = cipher.update(msg.nioBuffer(), out.nioBuffer(out.writerIndex(), length));
+            out.writerIndex(out.writerIndex() + written);
         } catch (ShortBufferException e) {
-            throw new RuntimeException("Failed to update an encrpytion buffer!");
+            out.release();
+            throw new RuntimeException("Failed to update an encryption buffer!", e);
         }
 
-        out.flip();
-        return Unpooled.wrappedBuffer(out);
+        return out;
     }
 
 }
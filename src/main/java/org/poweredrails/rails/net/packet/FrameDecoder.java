@@ -51,8 +51,9 @@ public class FrameDecoder extends ByteToMessageDecoder {
             return;
         }
 
-        Buffer buffer = new Buffer( buf.readBytes(length) );
-        out.add(buffer);
+        // Hand a retained slice of the cumulation down the pipeline rather than copying the frame out,
+        // it is released once the packet handler is done with it.
+        out.add(buf.readSlice(length).retain());
     }
 
     private static boolean readableVarInt(ByteBuf buf) {
@@ -0,0 +1,133 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.packet;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.poweredrails.rails.net.handler.status.ServerStatus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers server list pings from clients older than 1.7, which start with a 0xFE byte rather than a VarInt framed
+ * handshake.
+ *
+ * <p>Only the start of a connection is inspected. Legacy pings are answered from the cached status and the connection
+ * is closed, anything else is passed on and this handler removes itself from the pipeline. Once a ping has been
+ * answered, reading stops and anything still arriving is dropped.</p>
+ *
+ * <p>1.4 to 1.6 clients follow the 0xFE with a 0x01 byte, which may arrive in a later read. When the 0xFE arrives
+ * alone, the handler waits for the next read, or for {@link #BETA_TIMEOUT_MILLIS}, before answering in the format
+ * older clients understand.</p>
+ */
+public class LegacyPingHandler extends ChannelInboundHandlerAdapter {
+
+    private static final int LEGACY_PING_ID = 0xFE;
+    private static final int LEGACY_PING_PAYLOAD = 0x01;
+
+    private static final long BETA_TIMEOUT_MILLIS = 100;
+
+    private final ServerStatus status;
+
+    private ScheduledFuture<?> betaTimeout;
+    private boolean answered;
+
+    public LegacyPingHandler(ServerStatus status) {
+        this.status = status;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (this.answered) {
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+
+        if (!(msg instanceof ByteBuf)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        ByteBuf buf = (ByteBuf) msg;
+        int readerIndex = buf.readerIndex();
+
+        if (this.betaTimeout != null) {
+            // The 0xFE arrived alone, this read decides the format
+            if (!buf.isReadable()) {
+                buf.release();
+                return;
+            }
+
+            this.betaTimeout.cancel(false);
+            boolean beta = buf.getUnsignedByte(readerIndex) != LEGACY_PING_PAYLOAD;
+            buf.release();
+
+            answer(ctx, beta);
+            return;
+        }
+
+        if (!buf.isReadable() || buf.getUnsignedByte(readerIndex) != LEGACY_PING_ID) {
+            ctx.pipeline().remove(this);
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        if (buf.readableBytes() < 2) {
+            buf.release();
+            this.betaTimeout = ctx.executor().schedule(() -> answer(ctx, true), BETA_TIMEOUT_MILLIS,
+                    TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        boolean beta = buf.getUnsignedByte(readerIndex + 1) != LEGACY_PING_PAYLOAD;
+        buf.release();
+
+        answer(ctx, beta);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (this.betaTimeout != null) {
+            this.betaTimeout.cancel(false);
+        }
+
+        ctx.fireChannelInactive();
+    }
+
+    private void answer(ChannelHandlerContext ctx, boolean beta) {
+        if (this.answered) {
+            return;
+        }
+
+        this.answered = true;
+        ctx.channel().config().setAutoRead(false);
+        ctx.writeAndFlush(this.status.getLegacyEncoded(beta)).addListener(ChannelFutureListener.CLOSE);
+    }
+
+}
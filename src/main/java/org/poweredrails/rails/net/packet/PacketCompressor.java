@@ -26,19 +26,162 @@ package org.poweredrails.rails.net.packet;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.MessageToMessageCodec;
 import org.poweredrails.rails.net.buffer.Buffer;
 
-@Deprecated
-public class PacketCompressor extends MessageToByteEncoder<ByteBuf> {
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses and decompresses packets once compression has been enabled for a session.
+ *
+ * <p>Each channel owns a single {@link Deflater} and {@link Inflater}, which are reset between packets and ended
+ * when the handler is removed from the pipeline. Heap buffers are deflated and inflated straight from their
+ * backing arrays, and direct buffers are staged through a scratch array owned by the handler.</p>
+ */
+public class PacketCompressor extends MessageToMessageCodec<ByteBuf, ByteBuf> {
+
+    /**
+     * The largest uncompressed packet size the protocol allows.
+     */
+    private static final int MAXIMUM_DATA_LENGTH = 2097152;
+
+    private final int threshold;
+
+    private final Deflater deflater = new Deflater();
+    private final Inflater inflater = new Inflater();
+
+    private byte[] scratch = new byte[8192];
+
+    /**
+     * Creates a new packet compressor.
+     * @param threshold the size in bytes at which packets start being compressed
+     */
+    public PacketCompressor(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+        int length = msg.readableBytes();
+
+        if (length < this.threshold) {
+            ByteBuf buf = ctx.alloc().buffer(length + 1);
+            new Buffer(buf).writeVarInt(0, 1);
+            buf.writeBytes(msg);
+            out.add(buf);
+            return;
+        }
+
+        ByteBuf buf = ctx.alloc().heapBuffer(length + 5);
+        try {
+            new Buffer(buf).writeVarInt(length, 5);
+
+            setInput(msg, length);
+            this.deflater.finish();
+
+            while (!this.deflater.finished()) {
+                buf.ensureWritable(Math.max(256, length >> 2));
+                int written = this.deflater.deflate(buf.array(), buf.arrayOffset() + buf.writerIndex(), buf.writableBytes());
+                buf.writerIndex(buf.writerIndex() + written);
+            }
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        } finally {
+            this.deflater.reset();
+        }
+
+        out.add(buf);
+    }
 
     @Override
-    protected void encode(ChannelHandlerContext ctx, ByteBuf msg, ByteBuf buf) throws Exception {
-        Buffer out = new Buffer(buf);
+    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+        int dataLength = new Buffer(msg).readVarInt(5);
+
+        if (dataLength == 0) {
+            out.add(msg.retain());
+            return;
+        }
+
+        if (dataLength < this.threshold) {
+            throw new DecoderException("Compressed packet of " + dataLength + " bytes is below the threshold of "
+                    + this.threshold + "!");
+        }
+
+        if (dataLength > MAXIMUM_DATA_LENGTH) {
+            throw new DecoderException("Compressed packet of " + dataLength + " bytes exceeds the maximum of "
+                    + MAXIMUM_DATA_LENGTH + "!");
+        }
+
+        ByteBuf buf = ctx.alloc().heapBuffer(dataLength);
+        try {
+            if (msg.hasArray()) {
+                this.inflater.setInput(msg.array(), msg.arrayOffset() + msg.readerIndex(), msg.readableBytes());
+                msg.skipBytes(msg.readableBytes());
+            } else {
+                int length = msg.readableBytes();
+                byte[] input = scratch(length);
+                msg.readBytes(input, 0, length);
+                this.inflater.setInput(input, 0, length);
+            }
+
+            int read = this.inflater.inflate(buf.array(), buf.arrayOffset(), dataLength);
+            if (read != dataLength) {
+                throw new DecoderException("Compressed packet inflated to " + read + " bytes, expected "
+                        + dataLength + "!");
+            }
+
+            buf.writerIndex(dataLength);
+        } catch (DataFormatException | RuntimeException e) {
+            buf.release();
+            throw e instanceof DecoderException ? (DecoderException) e : new DecoderException(e);
+        } finally {
+            this.inflater.reset();
+        }
+
+        out.add(buf);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        super.handlerRemoved(ctx);
+
+        this.deflater.end();
+        this.inflater.end();
+    }
+
+    /**
+     * Sets the readable bytes of the message as the deflater's input, consuming them.
+     * @param msg the message to compress
+     * @param length the amount of readable bytes
+     */
+    private void setInput(ByteBuf msg, int length) {
+        if (msg.hasArray()) {
+            this.deflater.setInput(msg.array(), msg.arrayOffset() + msg.readerIndex(), length);
+        } else {
+            byte[] input = scratch(length);
+            msg.getBytes(msg.readerIndex(), input, 0, length);
+            this.deflater.setInput(input, 0, length);
+        }
+
+        msg.skipBytes(length);
+    }
+
+    /**
+     * Returns the scratch array, growing it if it can't hold the requested amount of bytes.
+     * @param length the amount of bytes needed
+     * @return scratch array
+     */
+    private byte[] scratch(int length) {
+        if (this.scratch.length < length) {
+            this.scratch = new byte[length];
+        }
 
-        int readableBytes = msg.readableBytes();
-        out.writeVarInt(readableBytes, 2);
-        buf.writeBytes(msg);
+        return this.scratch;
     }
 
 }
@@ -24,20 +24,21 @@
  */
 package org.poweredrails.rails.net.packet;
 
-
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
 import org.poweredrails.rails.net.buffer.Buffer;
 
 import java.util.List;
 
-public class PacketDecoder extends MessageToMessageDecoder<Buffer> {
+public class PacketDecoder extends MessageToMessageDecoder<ByteBuf> {
 
     @Override
-    protected void decode(ChannelHandlerContext ctx, Buffer buffer, List<Object> out) throws Exception {
-        int id = buffer.readVarInt(2);
+    protected void decode(ChannelHandlerContext ctx, ByteBuf buf, List<Object> out) throws Exception {
+        int id = new Buffer(buf).readVarInt(2);
 
-        UnresolvedPacket packet = new UnresolvedPacket(id, buffer);
+        // The frame is released when this method returns, the unresolved packet keeps its own reference.
+        UnresolvedPacket packet = new UnresolvedPacket(id, buf.retain());
 
         out.add(packet);
     }
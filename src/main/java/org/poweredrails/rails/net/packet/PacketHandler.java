@@ -26,32 +26,45 @@ package org.poweredrails.rails.net.packet;
 
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import org.poweredrails.rails.Main;
 import org.poweredrails.rails.net.buffer.Buffer;
 import org.poweredrails.rails.net.handler.HandlerRegistry;
 import org.poweredrails.rails.net.packet.registry.PacketFactory;
 import org.poweredrails.rails.net.packet.registry.PacketRegistry;
 import org.poweredrails.rails.net.session.Session;
+import org.poweredrails.rails.net.session.SessionManager;
 import org.poweredrails.rails.net.session.SessionStateEnum;
 
 import java.util.logging.Logger;
 
-// TODO: Dispose of session when channel goes inactive.
+/**
+ * Resolves and handles inbound packets. Being a {@link SimpleChannelInboundHandler}, each
+ * {@link UnresolvedPacket} and the frame it holds is released once {@link #channelRead0} returns.
+ */
 public class PacketHandler extends SimpleChannelInboundHandler<UnresolvedPacket> {
 
     private final Logger logger;
 
     private Session session;
+    private SessionManager sessionManager;
     private PacketRegistry packetRegistry;
     private HandlerRegistry handlerRegistry;
 
-    public PacketHandler(Logger logger, Session session, PacketRegistry packetRegistry,
+    public PacketHandler(Logger logger, Session session, SessionManager sessionManager, PacketRegistry packetRegistry,
                          HandlerRegistry handlerRegistry) {
         this.logger = logger;
         this.session = session;
+        this.sessionManager = sessionManager;
         this.packetRegistry = packetRegistry;
         this.handlerRegistry = handlerRegistry;
     }
 
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        this.sessionManager.dispose(ctx.channel());
+        super.channelInactive(ctx);
+    }
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, UnresolvedPacket unresolvedPacket) throws Exception {
         SessionStateEnum state = this.session.getState();
@@ -69,7 +82,12 @@ public class PacketHandler extends SimpleChannelInboundHandler<UnresolvedPacket>
         packet.setSender(this.session);
         packet.fromBuffer(buffer);
 
-        this.handlerRegistry.doHandle(packet);
+        if (state == SessionStateEnum.PLAY) {
+            // Game packets are handled on the tick thread, in the order they were received
+            Main.getTickLoop().execute(() -> this.handlerRegistry.doHandle(packet));
+        } else {
+            this.handlerRegistry.doHandle(packet);
+        }
     }
 
 }
@@ -24,17 +24,23 @@
  */
 package org.poweredrails.rails.net.packet;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
 import org.poweredrails.rails.net.buffer.Buffer;
-import org.poweredrails.rails.net.session.Session;
 
-public class UnresolvedPacket {
+/**
+ * A packet id along with the frame it was read from. The frame is reference counted and is released by the
+ * {@link PacketHandler} once the packet has been handled.
+ */
+public class UnresolvedPacket extends DefaultByteBufHolder {
 
     private int id;
     private Buffer buffer;
 
-    public UnresolvedPacket(int id, Buffer buffer) {
+    public UnresolvedPacket(int id, ByteBuf data) {
+        super(data);
         this.id = id;
-        this.buffer = buffer;
+        this.buffer = new Buffer(data);
     }
 
     public int getId() {
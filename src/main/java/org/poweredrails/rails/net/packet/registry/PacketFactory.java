@@ -26,22 +26,21 @@ package org.poweredrails.rails.net.packet.registry;
 
 import org.poweredrails.rails.net.packet.Packet;
 
+import java.util.function.Supplier;
+
+/**
+ * Creates new instances of an incoming packet, using the constructor reference it was registered with.
+ */
 public class PacketFactory {
 
-    private Class<? extends Packet<?>> clazz;
+    private Supplier<? extends Packet<?>> supplier;
 
-    public PacketFactory(Class<? extends Packet<?>> clazz) {
-        this.clazz = clazz;
+    public PacketFactory(Supplier<? extends Packet<?>> supplier) {
+        this.supplier = supplier;
     }
 
     public Packet<?> create() {
-        try {
-            return this.clazz.newInstance();
-        } catch (InstantiationException e) {
-            throw new RuntimeException("Failed to create an instance of class: " + this.clazz, e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException("Failed to access class: " + this.clazz, e);
-        }
+        return this.supplier.get();
     }
 
 }
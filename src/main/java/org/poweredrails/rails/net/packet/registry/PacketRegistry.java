@@ -28,8 +28,6 @@ import static org.poweredrails.rails.net.session.SessionStateEnum.HANDSHAKE;
 import static org.poweredrails.rails.net.session.SessionStateEnum.LOGIN;
 import static org.poweredrails.rails.net.session.SessionStateEnum.STATUS;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 import org.poweredrails.rails.net.packet.Packet;
 import org.poweredrails.rails.net.packet.handshake.PacketReceiveHandshake;
 import org.poweredrails.rails.net.packet.login.PacketReceiveEncryptResponse;
@@ -37,48 +35,63 @@ import org.poweredrails.rails.net.packet.login.PacketReceiveLoginStart;
 import org.poweredrails.rails.net.packet.login.PacketSendDisconnect;
 import org.poweredrails.rails.net.packet.login.PacketSendEncryptRequest;
 import org.poweredrails.rails.net.packet.login.PacketSendLoginSuccess;
+import org.poweredrails.rails.net.packet.login.PacketSendSetCompression;
 import org.poweredrails.rails.net.packet.status.PacketReceivePing;
 import org.poweredrails.rails.net.packet.status.PacketReceiveStatusRequest;
 import org.poweredrails.rails.net.packet.status.PacketSendPong;
 import org.poweredrails.rails.net.packet.status.PacketSendStatusResponse;
 import org.poweredrails.rails.net.session.SessionStateEnum;
 
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
+/**
+ * Maps packets to their ids in each session state.
+ *
+ * <p>Incoming packets are held in an array indexed by state ordinal and packet id, with a factory built for each
+ * up front from the packet's constructor reference. Outgoing packet classes map to an array of their id in each
+ * state. Both are only written to while the registry is being constructed, so lookups in either direction never
+ * allocate.</p>
+ */
 public class PacketRegistry {
 
-    private Table<SessionStateEnum, Integer, Class<? extends Packet<?>>> tableIncoming = HashBasedTable.create();
-    private Table<SessionStateEnum, Integer, Class<? extends Packet<?>>> tableOutgoing = HashBasedTable.create();
+    private static final int UNREGISTERED = -1;
+
+    private final PacketFactory[][] incoming = new PacketFactory[SessionStateEnum.values().length][0];
+    private final Map<Class<?>, int[]> outgoing = new IdentityHashMap<>();
 
     /**
      * Register all packet classes to their ids in different session states.
      */
     public PacketRegistry() {
-        this.tableIncoming.put(HANDSHAKE, 0x00, PacketReceiveHandshake.class);
-
-        this.tableIncoming.put(STATUS, 0x00, PacketReceiveStatusRequest.class);
-        this.tableOutgoing.put(STATUS, 0x00, PacketSendStatusResponse.class);
-        this.tableIncoming.put(STATUS, 0x01, PacketReceivePing.class);
-        this.tableOutgoing.put(STATUS, 0x01, PacketSendPong.class);
-
-        this.tableIncoming.put(LOGIN, 0x00, PacketReceiveLoginStart.class);
-        this.tableOutgoing.put(LOGIN, 0x00, PacketSendDisconnect.class);
-        this.tableIncoming.put(LOGIN, 0x01, PacketReceiveEncryptResponse.class);
-        this.tableOutgoing.put(LOGIN, 0x01, PacketSendEncryptRequest.class);
-        this.tableOutgoing.put(LOGIN, 0x02, PacketSendLoginSuccess.class);
+        this.registerIncoming(HANDSHAKE, 0x00, PacketReceiveHandshake::new);
+
+        this.registerIncoming(STATUS, 0x00, PacketReceiveStatusRequest::new);
+        this.registerOutgoing(STATUS, 0x00, PacketSendStatusResponse.class);
+        this.registerIncoming(STATUS, 0x01, PacketReceivePing::new);
+        this.registerOutgoing(STATUS, 0x01, PacketSendPong.class);
+
+        this.registerIncoming(LOGIN, 0x00, PacketReceiveLoginStart::new);
+        this.registerOutgoing(LOGIN, 0x00, PacketSendDisconnect.class);
+        this.registerIncoming(LOGIN, 0x01, PacketReceiveEncryptResponse::new);
+        this.registerOutgoing(LOGIN, 0x01, PacketSendEncryptRequest.class);
+        this.registerOutgoing(LOGIN, 0x02, PacketSendLoginSuccess.class);
+        this.registerOutgoing(LOGIN, 0x03, PacketSendSetCompression.class);
     }
 
     /**
      * Find a packet by its id, and return its factory.
      * @param state session state
      * @param id packet id
-     * @return PacketFactory - packet factory for packet
+     * @return PacketFactory - packet factory for packet, or null if the id isn't registered
      */
     public PacketFactory find(SessionStateEnum state, int id) {
-        Class<? extends Packet<?>> clazz = this.tableIncoming.get(state, id);
+        PacketFactory[] factories = this.incoming[state.ordinal()];
 
-        if (clazz != null) {
-            return new PacketFactory(clazz);
+        if (id >= 0 && id < factories.length) {
+            return factories[id];
         }
 
         return null;
@@ -92,15 +105,36 @@ public class PacketRegistry {
      */
     public int find(SessionStateEnum state, Packet<?> packet) {
         Class<?> packetClass = packet.getClass();
-        Map<Integer, Class<? extends Packet<?>>> rowMap = this.tableOutgoing.row(state);
+        int[] ids = this.outgoing.get(packetClass);
+
+        if (ids == null || ids[state.ordinal()] == UNREGISTERED) {
+            throw new RuntimeException("Packet " + packetClass.getName() + " isn't registered...!");
+        }
+
+        return ids[state.ordinal()];
+    }
+
+    private void registerIncoming(SessionStateEnum state, int id, Supplier<? extends Packet<?>> supplier) {
+        PacketFactory[] factories = this.incoming[state.ordinal()];
+
+        if (id >= factories.length) {
+            factories = Arrays.copyOf(factories, id + 1);
+            this.incoming[state.ordinal()] = factories;
+        }
+
+        factories[id] = new PacketFactory(supplier);
+    }
+
+    private void registerOutgoing(SessionStateEnum state, int id, Class<? extends Packet<?>> clazz) {
+        int[] ids = this.outgoing.get(clazz);
 
-        for (Map.Entry<Integer, Class<? extends Packet<?>>> entry : rowMap.entrySet()) {
-            if (entry.getValue().equals(packetClass)) {
-                return entry.getKey();
-            }
+        if (ids == null) {
+            ids = new int[SessionStateEnum.values().length];
+            Arrays.fill(ids, UNREGISTERED);
+            this.outgoing.put(clazz, ids);
         }
 
-        throw new RuntimeException("Packet " + packetClass.getName() + " isn't registered...!");
+        ids[state.ordinal()] = id;
     }
 
 }
@@ -24,7 +24,6 @@
  */
 package org.poweredrails.rails.net.packet.status;
 
-import org.json.JSONException;
 import org.poweredrails.rails.net.buffer.Buffer;
 import org.poweredrails.rails.net.handler.status.StatusPacketHandler;
 import org.poweredrails.rails.net.packet.Packet;
@@ -39,11 +38,7 @@ public class PacketReceiveStatusRequest extends Packet<StatusPacketHandler> {
 
     @Override
     public void handle(StatusPacketHandler handler) {
-        try {
-            handler.onStatusRequestPacket(this);
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
+        handler.onStatusRequestPacket(this);
     }
 
 }
@@ -24,36 +24,21 @@
  */
 package org.poweredrails.rails.net.packet.status;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 import org.poweredrails.rails.net.buffer.Buffer;
 import org.poweredrails.rails.net.handler.status.StatusPacketHandler;
 import org.poweredrails.rails.net.packet.Packet;
 
 public class PacketSendStatusResponse extends Packet<StatusPacketHandler> {
 
-    private JSONObject json;
+    private String json;
 
-    public PacketSendStatusResponse() throws JSONException {
-        this.json = new JSONObject()
-                .put("version", new JSONObject()
-                        .put("name", "1.8.8")
-                        .put("protocol", 47))
-                .put("players", new JSONObject()
-                        .put("max", 20)
-                        .put("online", 5)
-                        .put("sample", new JSONArray()
-                                .put(new JSONObject()
-                                        .put("name", "Bluesocks")
-                                        .put("id", "8652d6de-69bd-4319-8991-065231982198"))))
-                .put("description", new JSONObject()
-                        .put("text", "Hello world"));
+    public PacketSendStatusResponse(String json) {
+        this.json = json;
     }
 
     @Override
     public void toBuffer(Buffer buffer) {
-        buffer.writeString(this.json.toString());
+        buffer.writeString(this.json);
     }
 
     @Override
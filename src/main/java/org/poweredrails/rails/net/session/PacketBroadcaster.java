@@ -0,0 +1,103 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.session;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.poweredrails.rails.Main;
+import org.poweredrails.rails.event.EventBus;
+import org.poweredrails.rails.net.buffer.Buffer;
+import org.poweredrails.rails.net.packet.Packet;
+import org.poweredrails.rails.net.packet.registry.PacketRegistry;
+
+/**
+ * Sends a packet to many sessions while only serializing it once.
+ *
+ * <p>The packet is encoded into a single reference counted buffer per session state, and each session is written a
+ * retained duplicate of it below its packet encoder. The buffer still passes through every session's own
+ * compression, framing and encryption stages.</p>
+ */
+public class PacketBroadcaster {
+
+    private final PacketRegistry registry;
+
+    public PacketBroadcaster(PacketRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Broadcasts a packet to the sessions.
+     * @param packet the packet to send
+     * @param sessions the sessions to send the packet to
+     */
+    public void broadcast(Packet<?> packet, Iterable<Session> sessions) {
+        ByteBuf[] encoded = new ByteBuf[SessionStateEnum.values().length];
+        EventBus eventBus = Main.getEventBus();
+        boolean subscribed = eventBus.hasPacketSubscribers(packet.getClass());
+
+        try {
+            for (Session session : sessions) {
+                if (!session.getChannel().isActive() || subscribed && eventBus.firePacket(session, packet)) {
+                    continue;
+                }
+
+                int state = session.getState().ordinal();
+                if (encoded[state] == null) {
+                    encoded[state] = encode(session.getState(), packet);
+                }
+
+                session.sendEncoded(encoded[state].duplicate().retain());
+            }
+        } finally {
+            for (ByteBuf buf : encoded) {
+                if (buf != null) {
+                    buf.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Serializes the packet as it would be by the packet encoder for the state.
+     * @param state session state
+     * @param packet the packet to encode
+     * @return the encoded packet
+     */
+    private ByteBuf encode(SessionStateEnum state, Packet<?> packet) {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer();
+        Buffer out = new Buffer(buf);
+
+        try {
+            out.writeVarInt(this.registry.find(state, packet), 2);
+            packet.toBuffer(out);
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+
+        return buf;
+    }
+
+}
@@ -24,11 +24,14 @@
  */
 package org.poweredrails.rails.net.session;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import org.poweredrails.rails.Main;
+import org.poweredrails.rails.event.EventBus;
 import org.poweredrails.rails.net.packet.EncryptionHandler;
 import org.poweredrails.rails.net.packet.Packet;
+import org.poweredrails.rails.net.packet.PacketCompressor;
 
 import java.util.Random;
 import java.util.logging.Logger;
@@ -40,6 +43,7 @@ public class Session {
     private final Logger logger = Logger.getLogger("Rails");
 
     private final Channel channel;
+    private final SessionManager sessionManager;
     private final String sessionId = Long.toString(this.random.nextLong(), 16).trim();
 
     private String verifyUsername;
@@ -50,8 +54,21 @@ public class Session {
 
     private SessionStateEnum state = SessionStateEnum.HANDSHAKE;
 
+    private volatile boolean flushPending;
+
     public Session(Channel channel) {
+        this(channel, null);
+    }
+
+    /**
+     * Creates a new session for a channel registered with a session manager, which is told when the session starts
+     * or stops playing.
+     * @param channel connection
+     * @param sessionManager the session manager the session is registered with
+     */
+    Session(Channel channel, SessionManager sessionManager) {
         this.channel = channel;
+        this.sessionManager = sessionManager;
     }
 
     /**
@@ -61,7 +78,7 @@ public class Session {
      */
     @Deprecated
     public Session(ChannelHandlerContext ctx) {
-        this.channel = ctx.channel();
+        this(ctx.channel());
     }
 
     /**
@@ -73,12 +90,58 @@ public class Session {
     }
 
     /**
-     * Writes a packet to the handler context, to be sent to the client.
+     * Writes a packet to the handler context, to be sent to the client. Packets sent from the tick thread are
+     * flushed together at the end of the tick.
      * @param packet packet
      */
     public void sendPacket(Packet<?> packet) {
-        if (!Main.getEventBus().firePacket(this, packet)) {
-            this.channel.writeAndFlush(packet);
+        EventBus eventBus = Main.getEventBus();
+        if (!eventBus.hasPacketSubscribers(packet.getClass()) || !eventBus.firePacket(this, packet)) {
+            write(this.channel, packet);
+        }
+    }
+
+    /**
+     * Writes an already encoded packet to the channel below the packet encoder, to be sent to the client. The
+     * buffer is released once it has been written.
+     * @param buf the encoded packet, starting with its id
+     */
+    public void sendEncoded(ByteBuf buf) {
+        ChannelHandlerContext encoder = this.channel.pipeline().context("encoder");
+
+        if (encoder == null) {
+            buf.release();
+            return;
+        }
+
+        write(encoder, buf);
+    }
+
+    private void write(Channel channel, Object msg) {
+        if (Main.getTickLoop().isTickThread()) {
+            channel.write(msg);
+            this.flushPending = true;
+        } else {
+            channel.writeAndFlush(msg);
+        }
+    }
+
+    private void write(ChannelHandlerContext ctx, Object msg) {
+        if (Main.getTickLoop().isTickThread()) {
+            ctx.write(msg);
+            this.flushPending = true;
+        } else {
+            ctx.writeAndFlush(msg);
+        }
+    }
+
+    /**
+     * Flushes any packets written to this session during the current tick.
+     */
+    public void flush() {
+        if (this.flushPending) {
+            this.flushPending = false;
+            this.channel.flush();
         }
     }
 
@@ -87,7 +150,31 @@ public class Session {
      * @param sharedSecret the shared secret to encrypt/decrypt with
      */
     public void enableEncryption(SecretKey sharedSecret) {
-        this.channel.pipeline().replace("encryption", "encryption", new EncryptionHandler(sharedSecret));
+        runInEventLoop(() -> this.channel.pipeline().replace("encryption", "encryption",
+                new EncryptionHandler(sharedSecret)));
+    }
+
+    /**
+     * Enables compression for this session's channel. This should be called straight after sending the set
+     * compression packet, so that packet is still sent uncompressed and every packet sent after it is compressed.
+     * @param threshold the size in bytes at which packets start being compressed
+     */
+    public void enableCompression(int threshold) {
+        runInEventLoop(() ->
+                this.channel.pipeline().addAfter("frame_encoder", "compression", new PacketCompressor(threshold)));
+    }
+
+    /**
+     * Changes the pipeline in line with the packets written around the change. On the channel's event loop writes
+     * reach the pipeline straight away, so the change is made straight away too. From any other thread writes are
+     * queued on the event loop, so the change is queued behind them.
+     */
+    private void runInEventLoop(Runnable task) {
+        if (this.channel.eventLoop().inEventLoop()) {
+            task.run();
+        } else {
+            this.channel.eventLoop().execute(task);
+        }
     }
 
     /**
@@ -103,7 +190,13 @@ public class Session {
      * @param state session state
      */
     public void setState(SessionStateEnum state) {
+        SessionStateEnum previous = this.state;
         this.state = state;
+
+        if (this.sessionManager != null && previous != state
+                && (previous == SessionStateEnum.PLAY || state == SessionStateEnum.PLAY)) {
+            this.sessionManager.updatePlaying(this);
+        }
     }
 
     /**
@@ -26,27 +26,67 @@ package org.poweredrails.rails.net.session;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import org.poweredrails.rails.net.handler.status.ServerStatus;
+import org.poweredrails.rails.net.packet.Packet;
+import org.poweredrails.rails.net.packet.registry.PacketRegistry;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 
 public class SessionManager {
 
+    private static final AttributeKey<Session> SESSION_KEY = AttributeKey.valueOf("rails_session");
+
     private final Logger logger = Logger.getLogger("Rails");
 
-    private List<Session> sessionList = new ArrayList<>();
+    private final ConcurrentMap<Channel, Session> sessions = new ConcurrentHashMap<>();
+    private final Set<Session> playing = ConcurrentHashMap.newKeySet();
+
+    private final PacketBroadcaster broadcaster;
+    private final ServerStatus status;
+
+    public SessionManager(PacketRegistry packetRegistry) {
+        this(packetRegistry, new ServerStatus());
+    }
 
+    /**
+     * Creates a new session manager.
+     * @param packetRegistry the packet registry used to encode broadcast packets
+     * @param status the status whose online player count follows the sessions in the play state
+     */
+    public SessionManager(PacketRegistry packetRegistry, ServerStatus status) {
+        this.broadcaster = new PacketBroadcaster(packetRegistry);
+        this.status = status;
+    }
+
+    /**
+     * Gets an instance of the session for the channel it relates to, creating one if it doesn't exist yet. The
+     * session is stored as an attribute of the channel, so this is a constant time lookup.
+     * @param channel connection
+     * @return session
+     */
     public Session getSession(Channel channel) {
-        for (Session session : this.sessionList) {
-            if (session.getChannel().equals(channel)) {
-                return session;
-            }
+        Attribute<Session> attribute = channel.attr(SESSION_KEY);
+
+        Session session = attribute.get();
+        if (session != null) {
+            return session;
         }
 
-        Session session = new Session(channel);
-        this.sessionList.add(session);
+        session = new Session(channel, this);
+
+        Session existing = attribute.setIfAbsent(session);
+        if (existing != null) {
+            return existing;
+        }
+
+        this.sessions.put(channel, session);
         return session;
     }
 
@@ -57,15 +97,79 @@ public class SessionManager {
      */
     @Deprecated
     public Session getSession(ChannelHandlerContext ctx) {
-        for (Session session : this.sessionList) {
-            if (session.getChannel().equals(ctx.channel())) {
-                return session;
+        return getSession(ctx.channel());
+    }
+
+    /**
+     * Returns all the current sessions.
+     * @return sessions
+     */
+    public Collection<Session> getSessions() {
+        return Collections.unmodifiableCollection(this.sessions.values());
+    }
+
+    /**
+     * Sends a packet to every session, serializing it only once.
+     * @param packet the packet to send
+     */
+    public void broadcast(Packet<?> packet) {
+        this.broadcaster.broadcast(packet, this.sessions.values());
+    }
+
+    /**
+     * Sends a packet to the given sessions, serializing it only once.
+     * @param packet the packet to send
+     * @param sessions the sessions to send the packet to
+     */
+    public void broadcast(Packet<?> packet, Iterable<Session> sessions) {
+        this.broadcaster.broadcast(packet, sessions);
+    }
+
+    /**
+     * Flushes the packets written to every session during the current tick.
+     */
+    public void flushAll() {
+        this.sessions.values().forEach(Session::flush);
+    }
+
+    /**
+     * Counts the session towards the online players while it is in the play state and still registered.
+     * @param session the session which entered or left the play state
+     */
+    void updatePlaying(Session session) {
+        if (session.getState() == SessionStateEnum.PLAY) {
+            this.playing.add(session);
+
+            // Disposed of while entering the play state, the session must not stay counted
+            if (!this.sessions.containsKey(session.getChannel())) {
+                this.playing.remove(session);
             }
+        } else {
+            this.playing.remove(session);
         }
 
-        Session session = new Session(ctx);
-        this.sessionList.add(session);
-        return session;
+        this.status.setOnlinePlayers(this.playing.size());
+    }
+
+    /**
+     * Returns the amount of sessions in the play state.
+     * @return online player count
+     */
+    public int getOnlineCount() {
+        return this.playing.size();
+    }
+
+    /**
+     * Disposes of any sessions relating to this channel. The session stays attached to the channel, so writes still
+     * in flight are able to resolve it without registering it again.
+     * @param channel connection
+     */
+    public void dispose(Channel channel) {
+        Session session = this.sessions.remove(channel);
+
+        if (session != null && this.playing.remove(session)) {
+            this.status.setOnlinePlayers(this.playing.size());
+        }
     }
 
     /**
@@ -73,14 +177,7 @@ public class SessionManager {
      * @param ctx connection
      */
     public void dispose(ChannelHandlerContext ctx) {
-        Iterator<Session> it = this.sessionList.iterator();
-
-        while (it.hasNext()) {
-            Session session = it.next();
-            if (session.getChannel().equals(ctx.channel())) {
-                it.remove();
-            }
-        }
+        dispose(ctx.channel());
     }
 
 }
@@ -0,0 +1,151 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.util.auth;
+
+import com.google.common.collect.ImmutableList;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.poweredrails.rails.util.UUIDUtil;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The profile of an authenticated player, as returned by the session server.
+ */
+public class GameProfile {
+
+    private final UUID uuid;
+    private final String name;
+    private final List<Property> properties;
+
+    public GameProfile(UUID uuid, String name, List<Property> properties) {
+        this.uuid = uuid;
+        this.name = name;
+        this.properties = ImmutableList.copyOf(properties);
+    }
+
+    /**
+     * Reads a profile from its session server JSON representation.
+     * @param json the profile json
+     * @return game profile
+     * @throws JSONException if the json isn't a valid profile
+     */
+    public static GameProfile fromJson(JSONObject json) throws JSONException {
+        UUID uuid = UUIDUtil.fromFlatString(json.getString("id"));
+        String name = json.getString("name");
+
+        ImmutableList.Builder<Property> properties = ImmutableList.builder();
+
+        JSONArray array = json.optJSONArray("properties");
+        if (array != null) {
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject property = array.getJSONObject(i);
+                properties.add(new Property(property.getString("name"), property.getString("value"),
+                        property.optString("signature", null)));
+            }
+        }
+
+        return new GameProfile(uuid, name, properties.build());
+    }
+
+    /**
+     * Writes this profile to its session server JSON representation.
+     * @return the profile json
+     * @throws JSONException if the profile can't be written
+     */
+    public JSONObject toJson() throws JSONException {
+        JSONArray array = new JSONArray();
+        for (Property property : this.properties) {
+            JSONObject json = new JSONObject();
+            json.put("name", property.getName());
+            json.put("value", property.getValue());
+            if (property.getSignature() != null) {
+                json.put("signature", property.getSignature());
+            }
+
+            array.put(json);
+        }
+
+        JSONObject json = new JSONObject();
+        json.put("id", UUIDUtil.toFlatString(this.uuid));
+        json.put("name", this.name);
+        json.put("properties", array);
+
+        return json;
+    }
+
+    public UUID getUuid() {
+        return this.uuid;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the signed properties of this profile, such as the player's skin.
+     * @return profile properties
+     */
+    public List<Property> getProperties() {
+        return this.properties;
+    }
+
+    @Override
+    public String toString() {
+        return this.name + ", " + this.uuid;
+    }
+
+    /**
+     * A signed profile property.
+     */
+    public static class Property {
+
+        private final String name;
+        private final String value;
+        private final String signature;
+
+        public Property(String name, String value, String signature) {
+            this.name = name;
+            this.value = value;
+            this.signature = signature;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public String getValue() {
+            return this.value;
+        }
+
+        public String getSignature() {
+            return this.signature;
+        }
+
+    }
+
+}
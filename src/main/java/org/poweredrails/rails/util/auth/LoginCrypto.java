@@ -0,0 +1,177 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.util.auth;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Decrypts the shared secrets sent by logging in clients and computes the server hash used to authenticate them.
+ *
+ * <p>RSA decryption is expensive, so it runs on a bounded pool of its own rather than on the netty event loops. Each
+ * worker thread keeps its own initialized {@link Cipher} and {@link MessageDigest}.</p>
+ */
+public class LoginCrypto {
+
+    private final byte[] publicKey;
+
+    private final ThreadLocal<Cipher> cipher;
+    private final ThreadLocal<MessageDigest> digest;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Creates new login crypto.
+     * @param privateKey the server's private key, which clients encrypt their shared secrets with
+     * @param publicKey the X509 encoded public key sent to clients
+     * @param threads the amount of threads decrypting at once
+     * @param maxQueued the maximum amount of logins waiting to be decrypted
+     */
+    public LoginCrypto(PrivateKey privateKey, byte[] publicKey, int threads, int maxQueued) {
+        this.publicKey = publicKey;
+
+        this.cipher = ThreadLocal.withInitial(() -> {
+            try {
+                Cipher cipher = Cipher.getInstance("RSA");
+                cipher.init(Cipher.DECRYPT_MODE, privateKey);
+                return cipher;
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException("Failed to create RSA cipher!", e);
+            }
+        });
+
+        this.digest = ThreadLocal.withInitial(() -> {
+            try {
+                return MessageDigest.getInstance("SHA-1");
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException("Failed to create SHA-1 digest!", e);
+            }
+        });
+
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxQueued), new ThreadFactoryBuilder()
+                        .setNameFormat("Rails Crypto Worker #%d")
+                        .setDaemon(true)
+                        .build());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Decrypts a client's shared secret and verify token, and computes the server hash.
+     * @param serverId the server id sent to the client
+     * @param encryptedSecret the shared secret, encrypted with the server's public key
+     * @param encryptedToken the verify token, encrypted with the server's public key
+     * @return a future completed with the decrypted login, or exceptionally if decrypting failed or too many logins
+     *         are waiting
+     */
+    public CompletableFuture<Result> decrypt(String serverId, byte[] encryptedSecret, byte[] encryptedToken) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    // doFinal resets the cipher to its initialized state, ready for the next call
+                    Cipher cipher = this.cipher.get();
+                    SecretKey sharedSecret = new SecretKeySpec(cipher.doFinal(encryptedSecret), "AES");
+                    final byte[] verifyToken = cipher.doFinal(encryptedToken);
+
+                    MessageDigest digest = this.digest.get();
+                    digest.update(serverId.getBytes(StandardCharsets.ISO_8859_1));
+                    digest.update(sharedSecret.getEncoded());
+                    digest.update(this.publicKey);
+                    String serverHash = new BigInteger(digest.digest()).toString(16);
+
+                    return new Result(sharedSecret, verifyToken, serverHash);
+                } catch (GeneralSecurityException e) {
+                    throw new RuntimeException("Failed to decrypt login!", e);
+                }
+            }, this.executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<Result> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * Returns the amount of logins waiting to be decrypted.
+     * @return queue length
+     */
+    public int getQueued() {
+        return this.executor.getQueue().size();
+    }
+
+    /**
+     * Stops decrypting logins.
+     */
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * A decrypted login.
+     */
+    public static class Result {
+
+        private final SecretKey sharedSecret;
+        private final byte[] verifyToken;
+        private final String serverHash;
+
+        Result(SecretKey sharedSecret, byte[] verifyToken, String serverHash) {
+            this.sharedSecret = sharedSecret;
+            this.verifyToken = verifyToken;
+            this.serverHash = serverHash;
+        }
+
+        public SecretKey getSharedSecret() {
+            return this.sharedSecret;
+        }
+
+        public byte[] getVerifyToken() {
+            return this.verifyToken;
+        }
+
+        /**
+         * Returns the hash the client sent to the session server when joining.
+         * @return server hash
+         */
+        public String getServerHash() {
+            return this.serverHash;
+        }
+
+    }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.util.auth;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * A bounded, expiring cache of the profiles of authenticated players, which can be looked up by UUID or by name.
+ *
+ * <p>Profiles expire a fixed time after they were cached, and once the cache is full the least recently used
+ * profiles are evicted. The cache can be saved to and loaded from a snapshot file so it survives restarts, with
+ * each profile keeping the time it was first cached.</p>
+ *
+ * <p>Logins always verify with the session server and only feed this cache, a cached profile is never proof that
+ * a player owns an account. It serves everything else that needs to resolve a name to a UUID or look up a player's
+ * skin without a session server round trip.</p>
+ */
+public class ProfileCache {
+
+    private final Logger logger = Logger.getLogger("Rails");
+
+    private final long ttlMillis;
+
+    private final Cache<UUID, Entry> profiles;
+    private final ConcurrentMap<String, UUID> names = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Creates a new profile cache.
+     * @param ttl the time a profile is kept after being cached
+     * @param unit the time unit the ttl is specified in
+     * @param maximumSize the maximum amount of profiles to keep
+     */
+    public ProfileCache(long ttl, TimeUnit unit, long maximumSize) {
+        this.ttlMillis = unit.toMillis(ttl);
+        this.profiles = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttl, unit)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .removalListener((RemovalListener<UUID, Entry>) notification -> {
+                    // Replacements update the name index themselves in put
+                    if (notification.getCause() != RemovalCause.REPLACED) {
+                        String name = notification.getValue().profile.getName();
+                        this.names.remove(key(name), notification.getKey());
+                    }
+                })
+                .build();
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Caches a profile, replacing any profile cached for the same UUID.
+     * @param profile the profile to cache
+     */
+    public void put(GameProfile profile) {
+        put(profile, System.currentTimeMillis());
+    }
+
+    /**
+     * Caches a profile that was first cached at the given time, so it expires when it would have originally.
+     * @param profile the profile to cache
+     * @param cachedAt the time the profile was cached, in milliseconds since the epoch
+     */
+    private void put(GameProfile profile, long cachedAt) {
+        Entry previous = this.profiles.asMap().put(profile.getUuid(), new Entry(profile, cachedAt));
+        if (previous != null && !key(previous.profile.getName()).equals(key(profile.getName()))) {
+            this.names.remove(key(previous.profile.getName()), profile.getUuid());
+        }
+
+        this.names.put(key(profile.getName()), profile.getUuid());
+    }
+
+    /**
+     * Returns the cached profile for a UUID.
+     * @param uuid the player's uuid
+     * @return the profile, or null if it isn't cached
+     */
+    public GameProfile getProfile(UUID uuid) {
+        Entry entry = this.profiles.getIfPresent(uuid);
+        if (entry == null) {
+            this.misses.increment();
+            return null;
+        }
+
+        if (isExpired(entry.cachedAt, System.currentTimeMillis())) {
+            // Loaded from a snapshot, so the cache's own expiry started counting too late
+            this.profiles.asMap().remove(uuid, entry);
+            this.expirations.increment();
+            this.misses.increment();
+            return null;
+        }
+
+        this.hits.increment();
+        return entry.profile;
+    }
+
+    /**
+     * Returns the cached profile for a name, ignoring case.
+     * @param name the player's name
+     * @return the profile, or null if it isn't cached
+     */
+    public GameProfile getProfile(String name) {
+        UUID uuid = this.names.get(key(name));
+        if (uuid == null) {
+            this.misses.increment();
+            return null;
+        }
+
+        return getProfile(uuid);
+    }
+
+    private boolean isExpired(long cachedAt, long now) {
+        return now - cachedAt >= this.ttlMillis;
+    }
+
+    /**
+     * Removes a profile from the cache.
+     * @param uuid the player's uuid
+     */
+    public void invalidate(UUID uuid) {
+        this.profiles.invalidate(uuid);
+    }
+
+    public long size() {
+        return this.profiles.size();
+    }
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Returns the amount of profiles evicted for being expired or for the cache being full.
+     * @return eviction count
+     */
+    public long getEvictionCount() {
+        return this.profiles.stats().evictionCount() + this.expirations.sum();
+    }
+
+    /**
+     * Saves every cached profile to a snapshot file along with the time it was cached, replacing the file
+     * atomically.
+     * @param file the snapshot file
+     * @throws IOException if the snapshot can't be written
+     */
+    public void save(Path file) throws IOException {
+        try {
+            JSONArray array = new JSONArray();
+            for (Entry entry : this.profiles.asMap().values()) {
+                JSONObject json = entry.profile.toJson();
+                json.put("cachedAt", entry.cachedAt);
+                array.put(json);
+            }
+
+            JSONObject json = new JSONObject();
+            json.put("profiles", array);
+
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, json.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (JSONException e) {
+            throw new IOException("Failed to write profile snapshot!", e);
+        }
+    }
+
+    /**
+     * Loads the profiles from a snapshot file into the cache. Profiles cached longer ago than the ttl are skipped,
+     * the rest expire when they would have if the server hadn't restarted.
+     * @param file the snapshot file
+     * @throws IOException if the snapshot can't be read
+     */
+    public void load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try {
+            JSONObject json = new JSONObject(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            JSONArray array = json.getJSONArray("profiles");
+
+            long now = System.currentTimeMillis();
+            int loaded = 0;
+
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject profile = array.getJSONObject(i);
+
+                // Snapshots written before profiles kept their cache time are treated as expired
+                long cachedAt = profile.optLong("cachedAt", 0);
+                if (!isExpired(cachedAt, now)) {
+                    put(GameProfile.fromJson(profile), cachedAt);
+                    loaded++;
+                }
+            }
+
+            this.logger.info("Loaded " + loaded + " of " + array.length() + " profiles from " + file);
+        } catch (JSONException e) {
+            throw new IOException("Failed to read profile snapshot!", e);
+        }
+    }
+
+    /**
+     * A cached profile and the time it was first cached.
+     */
+    private static final class Entry {
+
+        private final GameProfile profile;
+        private final long cachedAt;
+
+        private Entry(GameProfile profile, long cachedAt) {
+            this.profile = profile;
+            this.cachedAt = cachedAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,348 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.util.auth;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.handler.codec.compression.JdkZlibDecoder;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpContentDecompressor;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.poweredrails.rails.net.channel.TransportType;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+
+/**
+ * An asynchronous client for the session server, verifying that players logging in have joined this server.
+ *
+ * <p>Requests are sent over a bounded pool of keep-alive connections, running on the given event loop group, so
+ * verifying logins never blocks a thread. Once every connection is busy, further requests wait for one to become
+ * free.</p>
+ */
+public class SessionServerClient {
+
+    private static final int MAX_PENDING_REQUESTS = 4096;
+
+    private final SessionServerSettings settings;
+    private final String hostHeader;
+    private final SslContext sslContext;
+
+    private final FixedChannelPool pool;
+
+    /**
+     * Creates a new session server client.
+     * @param group the event loop group connections run on
+     * @param transport the transport of the event loop group
+     * @param settings session server settings
+     */
+    public SessionServerClient(EventLoopGroup group, TransportType transport, SessionServerSettings settings) {
+        this.settings = settings;
+
+        URI url = settings.getUrl();
+        boolean defaultPort = url.getPort() == -1;
+        this.hostHeader = defaultPort ? url.getHost() : url.getHost() + ":" + url.getPort();
+
+        try {
+            this.sslContext = settings.isSecure() ? SslContextBuilder.forClient().build() : null;
+        } catch (SSLException e) {
+            throw new RuntimeException("Failed to create session server SSL context!", e);
+        }
+
+        Bootstrap bootstrap = new Bootstrap()
+                .group(group)
+                .channel(transport.getChannelClass())
+                .remoteAddress(url.getHost(), settings.getPort())
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, settings.getConnectTimeoutMillis())
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true);
+
+        this.pool = new FixedChannelPool(bootstrap, new PoolHandler(), ChannelHealthChecker.ACTIVE,
+                FixedChannelPool.AcquireTimeoutAction.FAIL, settings.getRequestTimeoutMillis(),
+                settings.getMaxConnections(), MAX_PENDING_REQUESTS);
+    }
+
+    /**
+     * Asks the session server whether a player has joined this server.
+     * @param username the username of the player
+     * @param serverId the server hash the client sent to the session server
+     * @return a future completed with the player's profile, or null if the player hasn't joined
+     */
+    public CompletableFuture<JSONObject> hasJoined(String username, String serverId) {
+        CompletableFuture<JSONObject> result = new CompletableFuture<>();
+        String uri = this.settings.getUrl().getRawPath() + "?username=" + encode(username) + "&serverId="
+                + encode(serverId);
+
+        this.pool.acquire().addListener((FutureListener<Channel>) future -> {
+            if (!future.isSuccess()) {
+                result.completeExceptionally(future.cause());
+                return;
+            }
+
+            Channel channel = future.getNow();
+            channel.eventLoop().execute(() -> channel.pipeline().get(ResponseHandler.class).send(uri, result));
+        });
+
+        return result;
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException("Failed to encode query parameter!", e);
+        }
+    }
+
+    /**
+     * Closes every pooled connection to the session server.
+     */
+    public void close() {
+        this.pool.close();
+    }
+
+    /**
+     * Sets up the pipeline of each new connection to the session server.
+     */
+    private final class PoolHandler extends AbstractChannelPoolHandler {
+
+        @Override
+        public void channelCreated(Channel channel) {
+            ChannelPipeline pl = channel.pipeline();
+            SessionServerSettings settings = SessionServerClient.this.settings;
+
+            if (SessionServerClient.this.sslContext != null) {
+                SslHandler ssl = SessionServerClient.this.sslContext.newHandler(channel.alloc(),
+                        settings.getUrl().getHost(), settings.getPort());
+
+                // the JDK engine only checks the certificate chain unless asked to verify the hostname as well
+                SSLEngine engine = ssl.engine();
+                SSLParameters params = engine.getSSLParameters();
+                params.setEndpointIdentificationAlgorithm("HTTPS");
+                engine.setSSLParameters(params);
+
+                pl.addLast("ssl", ssl);
+            }
+
+            pl.addLast("codec", new HttpClientCodec());
+            pl.addLast("decompressor", new GzipDecompressor());
+            pl.addLast("handler", new ResponseHandler());
+        }
+
+    }
+
+    /**
+     * Decompresses gzip responses with the JDK's zlib, rather than the JZlib library netty 4.0 picks by default,
+     * which isn't on the classpath.
+     */
+    private static final class GzipDecompressor extends HttpContentDecompressor {
+
+        @Override
+        protected EmbeddedChannel newContentDecoder(String contentEncoding) throws Exception {
+            if (HttpHeaders.Values.GZIP.equalsIgnoreCase(contentEncoding)) {
+                return new EmbeddedChannel(new JdkZlibDecoder(ZlibWrapper.GZIP));
+            }
+
+            return super.newContentDecoder(contentEncoding);
+        }
+
+    }
+
+    /**
+     * Sends a request over a pooled connection, and streams the response body into the JSON parser once it has
+     * been received. The connection is released back to the pool after each response.
+     */
+    private final class ResponseHandler extends SimpleChannelInboundHandler<HttpObject> {
+
+        private ChannelHandlerContext ctx;
+
+        private CompletableFuture<JSONObject> result;
+        private CompositeByteBuf body;
+        private HttpResponseStatus status;
+        private boolean keepAlive;
+        private ScheduledFuture<?> timeout;
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+        }
+
+        void send(String uri, CompletableFuture<JSONObject> result) {
+            this.result = result;
+            this.body = this.ctx.alloc().compositeBuffer();
+            this.status = null;
+            this.keepAlive = false;
+            this.timeout = this.ctx.executor().schedule(() -> fail(new TimeoutException("Session server timed out!")),
+                    SessionServerClient.this.settings.getRequestTimeoutMillis(), TimeUnit.MILLISECONDS);
+
+            FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+            request.headers().set(HttpHeaders.Names.HOST, SessionServerClient.this.hostHeader);
+            request.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+            request.headers().set(HttpHeaders.Names.ACCEPT, "application/json");
+            request.headers().set(HttpHeaders.Names.ACCEPT_ENCODING, HttpHeaders.Values.GZIP);
+            request.headers().set(HttpHeaders.Names.USER_AGENT, "Rails");
+
+            this.ctx.writeAndFlush(request).addListener(f -> {
+                if (!f.isSuccess()) {
+                    fail(f.cause());
+                }
+            });
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+            if (this.result == null) {
+                return;
+            }
+
+            if (msg instanceof HttpResponse) {
+                HttpResponse response = (HttpResponse) msg;
+                this.status = response.getStatus();
+                this.keepAlive = HttpHeaders.isKeepAlive(response);
+            }
+
+            if (msg instanceof HttpContent) {
+                HttpContent content = (HttpContent) msg;
+                if (content.content().isReadable()) {
+                    this.body.addComponent(content.content().retain());
+                    this.body.writerIndex(this.body.writerIndex() + content.content().readableBytes());
+                }
+
+                if (msg instanceof LastHttpContent) {
+                    complete();
+                }
+            }
+        }
+
+        private void complete() {
+            CompletableFuture<JSONObject> result = this.result;
+            CompositeByteBuf body = this.body;
+            int status = this.status.code();
+            boolean keepAlive = this.keepAlive;
+
+            reset();
+
+            try {
+                if (status == HttpResponseStatus.OK.code()) {
+                    result.complete(new JSONObject(new JSONTokener(
+                            new InputStreamReader(new ByteBufInputStream(body), StandardCharsets.UTF_8))));
+                } else if (status == HttpResponseStatus.NO_CONTENT.code()) {
+                    result.complete(null);
+                } else {
+                    result.completeExceptionally(new IOException("Session server responded with " + status + "!"));
+                }
+            } catch (JSONException e) {
+                result.completeExceptionally(e);
+            } finally {
+                body.release();
+            }
+
+            if (!keepAlive) {
+                this.ctx.close();
+            }
+
+            SessionServerClient.this.pool.release(this.ctx.channel());
+        }
+
+        private void fail(Throwable cause) {
+            CompletableFuture<JSONObject> result = this.result;
+            if (result == null) {
+                return;
+            }
+
+            this.body.release();
+            reset();
+
+            result.completeExceptionally(cause);
+
+            this.ctx.close();
+            SessionServerClient.this.pool.release(this.ctx.channel());
+        }
+
+        private void reset() {
+            this.timeout.cancel(false);
+
+            this.result = null;
+            this.body = null;
+            this.status = null;
+            this.timeout = null;
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            fail(new ClosedChannelException());
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            fail(cause);
+        }
+
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.util.auth;
+
+import java.net.URI;
+
+/**
+ * The settings used to connect to the session server which verifies logins.
+ */
+public class SessionServerSettings {
+
+    public static final String DEFAULT_URL = "https://sessionserver.mojang.com/session/minecraft/hasJoined";
+
+    public static final SessionServerSettings DEFAULT = new SessionServerSettings(DEFAULT_URL, 5000, 10000, 32);
+
+    private final URI url;
+    private final int connectTimeoutMillis;
+    private final int requestTimeoutMillis;
+    private final int maxConnections;
+
+    /**
+     * Creates new session server settings.
+     * @param url the url of the hasJoined endpoint
+     * @param connectTimeoutMillis the time to wait for a connection to the session server, in milliseconds
+     * @param requestTimeoutMillis the time to wait for a response from the session server, in milliseconds
+     * @param maxConnections the maximum amount of connections open to the session server at once
+     */
+    public SessionServerSettings(String url, int connectTimeoutMillis, int requestTimeoutMillis, int maxConnections) {
+        this.url = URI.create(url);
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.maxConnections = maxConnections;
+
+        String scheme = this.url.getScheme();
+        if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme)) {
+            throw new IllegalArgumentException("Session server url must be http or https: " + url);
+        }
+    }
+
+    public URI getUrl() {
+        return this.url;
+    }
+
+    /**
+     * Returns whether connections to the session server are made over TLS.
+     * @return true for https
+     */
+    public boolean isSecure() {
+        return "https".equalsIgnoreCase(this.url.getScheme());
+    }
+
+    /**
+     * Returns the port of the session server, falling back to the scheme's default port.
+     * @return port
+     */
+    public int getPort() {
+        if (this.url.getPort() != -1) {
+            return this.url.getPort();
+        }
+
+        return isSecure() ? 443 : 80;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return this.connectTimeoutMillis;
+    }
+
+    public int getRequestTimeoutMillis() {
+        return this.requestTimeoutMillis;
+    }
+
+    public int getMaxConnections() {
+        return this.maxConnections;
+    }
+
+}
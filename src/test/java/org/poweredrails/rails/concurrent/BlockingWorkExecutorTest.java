@@ -0,0 +1,100 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.concurrent;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class BlockingWorkExecutorTest {
+
+    private final BlockingWorkExecutor executor = new BlockingWorkExecutor(2,
+            ImmutableMap.of(BlockingWorkCategory.DISK, 1));
+
+    @Test
+    public void limitsWorkPerCategory() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Void> first = this.executor.submit(BlockingWorkCategory.DISK, () -> {
+            release.await();
+            return null;
+        });
+        final CompletableFuture<Integer> second = this.executor.submit(BlockingWorkCategory.DISK, () -> 2);
+
+        BlockingWorkExecutor.CategoryQueue queue = this.executor.getQueue(BlockingWorkCategory.DISK);
+        assertEquals(1, queue.getActive());
+        assertEquals(1, queue.getQueued());
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals(2, (int) second.get(5, TimeUnit.SECONDS));
+
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void failsQueuedWorkOnShutdown() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Void> running = this.executor.submit(BlockingWorkCategory.DISK, () -> {
+            started.countDown();
+            new CountDownLatch(1).await();
+            return null;
+        });
+        final CompletableFuture<Integer> queued = this.executor.submit(BlockingWorkCategory.DISK, () -> 2);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        this.executor.shutdownNow();
+
+        assertFailsWith(InterruptedException.class, running);
+        assertFailsWith(RejectedExecutionException.class, queued);
+        assertFailsWith(RejectedExecutionException.class, this.executor.submit(BlockingWorkCategory.DISK, () -> 3));
+
+        BlockingWorkExecutor.CategoryQueue queue = this.executor.getQueue(BlockingWorkCategory.DISK);
+        assertEquals(0, queue.getActive());
+        assertEquals(0, queue.getQueued());
+        assertEquals(2, queue.getRejected());
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> type, CompletableFuture<?> future)
+            throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected " + type.getSimpleName());
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(type));
+        }
+    }
+
+}
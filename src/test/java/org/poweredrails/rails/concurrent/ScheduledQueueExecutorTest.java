@@ -0,0 +1,69 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.concurrent;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ScheduledQueueExecutorTest {
+
+    private final TickLoop tickLoop = new TickLoop();
+    private final ScheduledQueueExecutor scheduler = new ScheduledQueueExecutor(this.tickLoop);
+
+    @After
+    public void tearDown() {
+        this.tickLoop.stop();
+        this.scheduler.shutdownNow();
+    }
+
+    @Test
+    public void tickDelayedTasksWaitForTheTickLoop() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        AtomicLong ranOnTick = new AtomicLong();
+
+        this.scheduler.enqueueWithTickDelay(() -> {
+            ranOnTick.set(this.tickLoop.getCurrentTick());
+            ran.countDown();
+        }, 3);
+
+        // Nothing counts ticks until the tick loop runs
+        assertFalse(ran.await(300, TimeUnit.MILLISECONDS));
+
+        this.tickLoop.start();
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertThat(ranOnTick.get(), greaterThanOrEqualTo(3L));
+    }
+
+}
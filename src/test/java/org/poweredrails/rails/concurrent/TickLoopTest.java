@@ -0,0 +1,163 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.concurrent;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TickLoopTest {
+
+    private static final long TICK = TickLoop.TICK_NANOS;
+
+    /**
+     * The time read by the tick loop, moved on by the tasks it runs.
+     */
+    private long now;
+
+    private final TickLoop tickLoop = new TickLoop(() -> this.now);
+
+    @Test
+    public void schedulesTheNextTickOneTickAfterTheLast() {
+        this.tickLoop.addEndOfTickTask(() -> this.now += TICK / 4);
+
+        assertEquals(TICK, this.tickLoop.runTick(0));
+        assertEquals(2 * TICK, this.tickLoop.runTick(TICK));
+        assertEquals(2, this.tickLoop.getCurrentTick());
+    }
+
+    @Test
+    public void catchesUpAfterAnOverrunningTick() {
+        AtomicInteger overruns = new AtomicInteger(1);
+        this.tickLoop.addEndOfTickTask(() -> {
+            if (overruns.getAndDecrement() > 0) {
+                this.now += 5 * TICK;
+            }
+        });
+
+        // The overrunning tick leaves the next ticks already due, so they run back to back
+        long nextTick = this.tickLoop.runTick(0);
+        assertEquals(TICK, nextTick);
+
+        while (nextTick <= this.now) {
+            nextTick = this.tickLoop.runTick(nextTick);
+        }
+
+        assertEquals(6 * TICK, nextTick);
+        assertEquals(6, this.tickLoop.getCurrentTick());
+        assertEquals(0, this.tickLoop.getSkippedTicks());
+    }
+
+    @Test
+    public void skipsTicksOnceMoreThanTwentyBehind() {
+        this.tickLoop.addEndOfTickTask(() -> this.now += 30 * TICK);
+
+        // Thirty ticks late is more than the loop catches up on, so it starts afresh from now
+        long nextTick = this.tickLoop.runTick(0);
+        assertEquals(30 * TICK, nextTick);
+        assertEquals(29, this.tickLoop.getSkippedTicks());
+    }
+
+    @Test
+    public void catchesUpWhenExactlyTwentyBehind() {
+        this.tickLoop.addEndOfTickTask(() -> this.now += 21 * TICK);
+
+        assertEquals(TICK, this.tickLoop.runTick(0));
+        assertEquals(0, this.tickLoop.getSkippedTicks());
+    }
+
+    @Test
+    public void runsAtMost1024QueuedTasksEachTick() {
+        AtomicInteger ran = new AtomicInteger();
+        for (int i = 0; i < 1500; i++) {
+            this.tickLoop.execute(ran::incrementAndGet);
+        }
+
+        this.tickLoop.runTick(0);
+        assertEquals(1024, ran.get());
+        assertEquals(476, this.tickLoop.getQueuedWork());
+
+        this.tickLoop.runTick(TICK);
+        assertEquals(1500, ran.get());
+        assertEquals(0, this.tickLoop.getQueuedWork());
+    }
+
+    @Test
+    public void spendsAtMostHalfATickOnQueuedTasks() {
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final int task = i;
+            this.tickLoop.execute(() -> {
+                ran.add(task);
+                this.now += TICK / 8;
+            });
+        }
+
+        // Four tasks use up the half tick budget, the rest carry over to the next tick in order
+        this.tickLoop.runTick(0);
+        assertEquals(Arrays.asList(0, 1, 2, 3), ran);
+
+        this.tickLoop.runTick(TICK);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7), ran);
+
+        this.tickLoop.runTick(2 * TICK);
+        assertEquals(10, ran.size());
+    }
+
+    @Test
+    public void runsEndOfTickTasksLast() {
+        List<String> order = new ArrayList<>();
+        this.tickLoop.addEndOfTickTask(() -> order.add("end 1"));
+        this.tickLoop.addEndOfTickTask(() -> order.add("end 2"));
+        this.tickLoop.schedule(() -> order.add("scheduled"), 1);
+        this.tickLoop.execute(() -> order.add("queued"));
+
+        this.tickLoop.runTick(0);
+        assertEquals(Arrays.asList("queued", "scheduled", "end 1", "end 2"), order);
+    }
+
+    @Test
+    public void recordsTickDurationsFromTheClock() {
+        long[] durations = { 10, 20, 30, 40 };
+        AtomicInteger tick = new AtomicInteger();
+        this.tickLoop.addEndOfTickTask(() -> this.now += durations[tick.getAndIncrement()] * 1_000_000);
+
+        long nextTick = 0;
+        for (int i = 0; i < durations.length; i++) {
+            nextTick = this.tickLoop.runTick(nextTick);
+        }
+
+        TickStatistics statistics = this.tickLoop.getStatistics();
+        assertEquals(4, statistics.getSampleCount());
+        assertEquals(25, statistics.getMeanMspt(), 1e-9);
+        assertEquals(40, statistics.getMaxMspt(), 1e-9);
+    }
+
+}
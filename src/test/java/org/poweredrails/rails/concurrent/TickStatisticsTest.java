@@ -0,0 +1,90 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.concurrent;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TickStatisticsTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    public void reportsZeroWithoutSamples() {
+        TickStatistics statistics = new TickStatistics(10);
+
+        assertEquals(0, statistics.getSampleCount());
+        assertEquals(0, statistics.getMeanMspt(), 0);
+        assertEquals(0, statistics.getP99Mspt(), 0);
+        assertEquals(0, statistics.getMaxMspt(), 0);
+    }
+
+    @Test
+    public void calculatesMeanPercentileAndMax() {
+        TickStatistics statistics = new TickStatistics(200);
+
+        // Recorded out of order, the percentile must not depend on it
+        for (int i = 200; i >= 1; i--) {
+            statistics.record(i * MILLIS);
+        }
+
+        assertEquals(200, statistics.getSampleCount());
+        assertEquals(100.5, statistics.getMeanMspt(), 1e-9);
+        assertEquals(198, statistics.getP99Mspt(), 1e-9);
+        assertEquals(100, statistics.getPercentileMspt(0.5), 1e-9);
+        assertEquals(200, statistics.getMaxMspt(), 1e-9);
+    }
+
+    @Test
+    public void keepsOnlyTheMostRecentTicks() {
+        TickStatistics statistics = new TickStatistics(4);
+        statistics.record(1000 * MILLIS);
+
+        for (int i = 0; i < 4; i++) {
+            statistics.record(10 * MILLIS);
+        }
+
+        assertEquals(4, statistics.getSampleCount());
+        assertEquals(10, statistics.getMeanMspt(), 1e-9);
+        assertEquals(10, statistics.getP99Mspt(), 1e-9);
+        assertEquals(10, statistics.getMaxMspt(), 1e-9);
+    }
+
+    @Test
+    public void reportsTheSingleWorstTickAtTheNinetyNinthPercentile() {
+        TickStatistics statistics = new TickStatistics(100);
+        for (int i = 0; i < 99; i++) {
+            statistics.record(5 * MILLIS);
+        }
+
+        statistics.record(80 * MILLIS);
+
+        assertEquals(5.75, statistics.getMeanMspt(), 1e-9);
+        assertEquals(5, statistics.getP99Mspt(), 1e-9);
+        assertEquals(80, statistics.getMaxMspt(), 1e-9);
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.concurrent;
+
+import java.util.Random;
+
+/**
+ * Measures the timing wheel with a million timers spread over 2000 ticks, the same shape as the tick loop's wheel
+ * under heavy load.
+ *
+ * <p>Scheduling every timer, cancelling a quarter of them, and advancing the wheel until every remaining timer has
+ * fired are each timed separately, along with the slowest single tick. Run with {@code main}, optionally passing the
+ * amount of timers and the amount of rounds to run.</p>
+ */
+public final class TimingWheelBenchmark {
+
+    private static final int TICKS = 2000;
+
+    private final int timers;
+
+    private long fired;
+
+    private TimingWheelBenchmark(int timers) {
+        this.timers = timers;
+    }
+
+    private void run() {
+        this.fired = 0;
+        TimingWheel wheel = new TimingWheel(512, Runnable::run);
+        Runnable task = () -> this.fired++;
+        Random random = new Random(42);
+
+        TimingWheel.Timeout[] timeouts = new TimingWheel.Timeout[this.timers];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < this.timers; i++) {
+            timeouts[i] = wheel.schedule(task, 1 + random.nextInt(TICKS));
+        }
+        final long scheduled = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < this.timers; i += 4) {
+            timeouts[i].cancel();
+        }
+        final long cancelled = System.nanoTime() - start;
+
+        long slowestTick = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < TICKS; i++) {
+            long tickStart = System.nanoTime();
+            wheel.advance();
+            slowestTick = Math.max(slowestTick, System.nanoTime() - tickStart);
+        }
+        long advanced = System.nanoTime() - start;
+
+        long expected = this.timers - (this.timers + 3) / 4;
+        if (this.fired != expected) {
+            throw new IllegalStateException("Expected " + expected + " timers to fire, but " + this.fired + " did!");
+        }
+
+        System.out.printf("schedule: %6.1f ns/timer, cancel: %6.1f ns/timer, advance: %6.1f ns/timer, "
+                        + "%d ticks in %.1fms, slowest tick %.2fms%n",
+                scheduled / (double) this.timers, cancelled / (this.timers / 4.0), advanced / (double) this.fired,
+                TICKS, advanced / 1e6, slowestTick / 1e6);
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args the amount of timers, 1000000 by default, and the amount of rounds, 10 by default
+     */
+    public static void main(String[] args) {
+        int timers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        TimingWheelBenchmark benchmark = new TimingWheelBenchmark(timers);
+        for (int i = 0; i < rounds; i++) {
+            benchmark.run();
+        }
+    }
+
+}
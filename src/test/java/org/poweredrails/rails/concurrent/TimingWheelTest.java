@@ -0,0 +1,214 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.concurrent;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class TimingWheelTest {
+
+    private final TimingWheel wheel = new TimingWheel(8, Runnable::run);
+
+    /**
+     * The tick being advanced to. The wheel only publishes its new tick once every expired task has run.
+     */
+    private volatile long tick;
+
+    private void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            this.tick++;
+            this.wheel.advance();
+        }
+    }
+
+    private Runnable record(List<Long> ticks) {
+        return () -> ticks.add(this.tick);
+    }
+
+    @Test
+    public void runsTasksOnTheirDeadline() {
+        List<Long> ran = new ArrayList<>();
+        final TimingWheel.Timeout timeout = this.wheel.schedule(record(ran), 3);
+
+        advance(2);
+        assertTrue(ran.isEmpty());
+
+        advance(1);
+        assertEquals(Collections.singletonList(3L), ran);
+        assertTrue(timeout.isExpired());
+
+        advance(16);
+        assertEquals(1, ran.size());
+    }
+
+    @Test
+    public void waitsOutEveryRoundOfTheWheel() {
+        List<Long> ran = new ArrayList<>();
+        this.wheel.schedule(record(ran), 21);
+
+        // The deadline shares a bucket with ticks 5 and 13, which must not run it
+        advance(20);
+        assertTrue(ran.isEmpty());
+
+        advance(1);
+        assertEquals(Collections.singletonList(21L), ran);
+    }
+
+    @Test
+    public void cancelsWaitingTasks() {
+        List<Long> ran = new ArrayList<>();
+
+        // Cancelled while still queued to be moved onto the wheel
+        TimingWheel.Timeout pending = this.wheel.schedule(record(ran), 2);
+        assertTrue(pending.cancel());
+
+        // Cancelled once already hashed into a bucket, several rounds out
+        TimingWheel.Timeout bucketed = this.wheel.schedule(record(ran), 20);
+        advance(1);
+        assertTrue(bucketed.cancel());
+        assertFalse(bucketed.cancel());
+
+        advance(30);
+        assertTrue(ran.isEmpty());
+        assertTrue(pending.isCancelled());
+        assertTrue(bucketed.isCancelled());
+    }
+
+    @Test
+    public void cannotCancelExpiredTasks() {
+        TimingWheel.Timeout timeout = this.wheel.schedule(() -> { }, 1);
+        advance(1);
+
+        assertFalse(timeout.cancel());
+        assertTrue(timeout.isExpired());
+    }
+
+    @Test
+    public void repeatsUntilCancelled() {
+        List<Long> ran = new ArrayList<>();
+        TimingWheel.Timeout timeout = this.wheel.scheduleRepeating(record(ran), 2, 3);
+
+        advance(11);
+        assertEquals(Arrays.asList(2L, 5L, 8L, 11L), ran);
+        assertEquals(14, timeout.getDeadline());
+
+        assertTrue(timeout.cancel());
+        advance(10);
+        assertEquals(4, ran.size());
+    }
+
+    @Test
+    public void repeatsEveryTickWithoutRunningTwiceInOne() {
+        List<Long> ran = new ArrayList<>();
+        this.wheel.scheduleRepeating(record(ran), 1, 1);
+
+        advance(5);
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), ran);
+    }
+
+    @Test
+    public void repeatsWithPeriodsLongerThanTheWheel() {
+        List<Long> ran = new ArrayList<>();
+        this.wheel.scheduleRepeating(record(ran), 1, 10);
+
+        advance(31);
+        assertEquals(Arrays.asList(1L, 11L, 21L, 31L), ran);
+    }
+
+    @Test
+    public void schedulesFromOtherThreads() throws Exception {
+        int threads = 4;
+        int tasksPerThread = 5000;
+
+        AtomicIntegerArray runs = new AtomicIntegerArray(threads * tasksPerThread);
+        long[] deadlines = new long[threads * tasksPerThread];
+        long[] ranOn = new long[threads * tasksPerThread];
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier start = new CyclicBarrier(threads + 1);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int offset = t * tasksPerThread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < tasksPerThread; i++) {
+                        int id = offset + i;
+                        deadlines[id] = this.wheel.schedule(() -> {
+                            ranOn[id] = this.tick;
+                            runs.incrementAndGet(id);
+                        }, 1 + i % 40).getDeadline();
+                    }
+
+                    return null;
+                }));
+            }
+
+            start.await();
+
+            // Keep the wheel turning while the other threads schedule onto it
+            boolean scheduling = true;
+            while (scheduling) {
+                advance(1);
+
+                scheduling = false;
+                for (Future<?> future : futures) {
+                    scheduling |= !future.isDone();
+                }
+            }
+
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        advance(41);
+
+        for (int i = 0; i < runs.length(); i++) {
+            assertEquals(1, runs.get(i));
+            assertThat(ranOn[i], greaterThanOrEqualTo(deadlines[i]));
+        }
+    }
+
+}
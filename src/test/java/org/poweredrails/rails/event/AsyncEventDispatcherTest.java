@@ -0,0 +1,112 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncEventDispatcherTest {
+
+    private final ListenerRegistry registry = new ListenerRegistry();
+    private final AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(this.registry,
+            new EventDispatcher(this.registry, new EventProfiler(this.registry)), 1, 1);
+
+    @After
+    public void tearDown() {
+        this.dispatcher.shutdown();
+    }
+
+    @Test
+    public void dispatchesAsyncSafeEventsOnAWorker() throws Exception {
+        this.registry.register(new AsyncListener());
+
+        TestEvent event = this.dispatcher.dispatch(new TestEvent(null)).get(5, TimeUnit.SECONDS);
+        assertTrue(event.thread.getName().startsWith("Rails Event Worker"));
+    }
+
+    @Test
+    public void dispatchesOnTheCallerWhenTheQueueIsFull() throws Exception {
+        this.registry.register(new AsyncListener());
+
+        CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<TestEvent> running = this.dispatcher.dispatch(new TestEvent(release));
+        final CompletableFuture<TestEvent> queued = this.dispatcher.dispatch(new TestEvent(release));
+
+        // The only worker is busy and the queue holds one event, so this one is dispatched right here
+        TestEvent overflow = this.dispatcher.dispatch(new TestEvent(null)).get(5, TimeUnit.SECONDS);
+        assertEquals(Thread.currentThread(), overflow.thread);
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void failsEventsDispatchedAfterShutdown() throws Exception {
+        this.registry.register(new AsyncListener());
+        this.dispatcher.shutdown();
+
+        try {
+            this.dispatcher.dispatch(new TestEvent(null)).get(5, TimeUnit.SECONDS);
+            fail("The event was dispatched after shutdown!");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    public static class TestEvent implements Event {
+
+        private final CountDownLatch release;
+        private volatile Thread thread;
+
+        TestEvent(CountDownLatch release) {
+            this.release = release;
+        }
+
+    }
+
+    public static class AsyncListener implements Listener {
+
+        @Subscribe(async = true)
+        public void onTest(TestEvent event) throws InterruptedException {
+            event.thread = Thread.currentThread();
+            if (event.release != null) {
+                assertTrue(event.release.await(5, TimeUnit.SECONDS));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.event;
+
+import org.poweredrails.rails.net.packet.handshake.PacketReceiveHandshake;
+import org.poweredrails.rails.net.packet.status.PacketReceivePing;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * Measures the cost of firing an event through the event bus with 0, 1, 10 and 100 subscribers, against calling
+ * the same handler methods with {@link Method#invoke}, which is how handlers were called before they were bound to
+ * executors at registration.
+ *
+ * <p>Firing an event and a packet nobody subscribes to is then measured with hundreds of listeners registered
+ * for other events, against the linear scan over every handler the registry made before it indexed them by
+ * class.</p>
+ *
+ * <p>Run with {@code main}, optionally passing the seconds to measure each case for.</p>
+ */
+public final class EventBusBenchmark {
+
+    private static final int[] SUBSCRIBERS = { 0, 1, 10, 100 };
+    private static final int[] REGISTERED = { 100, 500 };
+
+    private static double measure(IntSupplier fire, long nanos) {
+        long sink = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            sink += fire.getAsInt();
+        }
+
+        long events = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 10_000; i++) {
+                sink += fire.getAsInt();
+            }
+
+            events += 10_000;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+
+        if (sink < 0) {
+            throw new IllegalStateException("The handlers overflowed!");
+        }
+
+        return (double) elapsed / events;
+    }
+
+    private static double measureBus(int subscribers, long nanos) {
+        EventBus bus = new EventBus(1, 16);
+        for (int i = 0; i < subscribers; i++) {
+            bus.registerListener(new CountingListener());
+        }
+
+        BenchmarkEvent event = new BenchmarkEvent();
+        double cost = measure(() -> {
+            bus.fire(event);
+            return event.handled;
+        }, nanos);
+
+        bus.shutdown();
+        return cost;
+    }
+
+    private static double measureReflection(int subscribers, long nanos) throws NoSuchMethodException {
+        Method method = CountingListener.class.getMethod("onEvent", BenchmarkEvent.class);
+        Listener[] listeners = new Listener[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            listeners[i] = new CountingListener();
+        }
+
+        BenchmarkEvent event = new BenchmarkEvent();
+        return measure(() -> {
+            for (Listener listener : listeners) {
+                try {
+                    method.invoke(listener, event);
+                } catch (ReflectiveOperationException e) {
+                    throw new RuntimeException("An exception occurred whilst handling an event!", e);
+                }
+            }
+
+            return event.handled;
+        }, nanos);
+    }
+
+    private static void measureUnsubscribed(int registered, long nanos) {
+        EventBus bus = new EventBus(1, 16);
+        ListenerRegistry registry = new ListenerRegistry();
+        for (int i = 0; i < registered; i++) {
+            Listener listener = i % 2 == 0 ? new CountingListener() : new HandshakeListener();
+            bus.registerListener(listener);
+            registry.register(listener);
+        }
+
+        List<EventHandler> handlers = registry.getHandlers();
+        UnheardEvent event = new UnheardEvent();
+        PacketReceivePing packet = new PacketReceivePing();
+
+        System.out.printf("unsubscribed event,  %d listeners: event bus %,8.1f ns/event, scan %,8.1f ns/event%n",
+                registered, measure(() -> {
+                    bus.fire(event);
+                    return 1;
+                }, nanos), measure(() -> scanForEvent(handlers, event).size() + 1, nanos));
+        System.out.printf("unsubscribed packet, %d listeners: event bus %,8.1f ns/packet, scan %,8.1f ns/packet%n",
+                registered, measure(() -> bus.firePacket(null, packet) ? 0 : 1, nanos),
+                measure(() -> scanForPacket(handlers, packet).size() + 1, nanos));
+
+        bus.shutdown();
+    }
+
+    /**
+     * Finds the handlers for an event the way the registry did before it was indexed, by checking every handler.
+     */
+    private static List<EventHandler> scanForEvent(List<EventHandler> handlers, Event event) {
+        List<EventHandler> list = new ArrayList<>();
+
+        handlers.forEach(handler -> {
+            if (handler.handlesEvent(event.getClass())) {
+                list.add(handler);
+            }
+        });
+
+        return list;
+    }
+
+    /**
+     * Finds the handlers for a packet the way the registry did before it was indexed, by checking every handler.
+     */
+    private static List<EventHandler> scanForPacket(List<EventHandler> handlers, PacketReceivePing packet) {
+        List<EventHandler> list = new ArrayList<>();
+
+        handlers.forEach(handler -> {
+            if (handler.handlesEvent(PacketEvent.class) && handler.handlesPacket(packet)) {
+                list.add(handler);
+            }
+        });
+
+        return list;
+    }
+
+    public static class BenchmarkEvent implements Event {
+
+        private int handled;
+
+    }
+
+    public static class CountingListener implements Listener {
+
+        @Subscribe
+        public void onEvent(BenchmarkEvent event) {
+            event.handled++;
+        }
+
+    }
+
+    public static class UnheardEvent implements Event {
+    }
+
+    public static class HandshakeListener implements Listener {
+
+        @Subscribe
+        public void onHandshake(PacketEvent<PacketReceiveHandshake> event) {
+            // only registered so the registry holds packet handlers for another packet
+        }
+
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args the seconds to measure each case for, 1 by default
+     * @throws NoSuchMethodException if the handler method couldn't be found
+     */
+    public static void main(String[] args) throws NoSuchMethodException {
+        long nanos = (long) ((args.length > 0 ? Double.parseDouble(args[0]) : 1) * 1e9);
+
+        for (int subscribers : SUBSCRIBERS) {
+            System.out.printf("%3d subscribers: event bus %,8.1f ns/event, Method.invoke %,8.1f ns/event%n",
+                    subscribers, measureBus(subscribers, nanos), measureReflection(subscribers, nanos));
+        }
+
+        for (int registered : REGISTERED) {
+            measureUnsubscribed(registered, nanos);
+        }
+    }
+
+}
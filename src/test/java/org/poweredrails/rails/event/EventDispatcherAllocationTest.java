@@ -0,0 +1,126 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.event;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.poweredrails.rails.net.packet.handshake.PacketReceiveHandshake;
+import org.poweredrails.rails.net.packet.status.PacketReceivePing;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Checks that firing a packet nobody listens for doesn't allocate, by measuring the bytes allocated by the test
+ * thread around a warmed up dispatch loop.
+ */
+public class EventDispatcherAllocationTest {
+
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 100_000;
+
+    private final EventBus bus = new EventBus(1, 16);
+
+    private com.sun.management.ThreadMXBean threads;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+
+        this.threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(this.threads.isThreadAllocatedMemorySupported());
+        this.threads.setThreadAllocatedMemoryEnabled(true);
+
+        // Something is subscribed, just not to the packet being fired
+        this.bus.registerListener(new HandshakeListener());
+    }
+
+    private long allocatedBytes(BooleanSupplier dispatch) {
+        boolean cancelled = false;
+        for (int i = 0; i < WARMUP; i++) {
+            cancelled |= dispatch.getAsBoolean();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = this.threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            cancelled |= dispatch.getAsBoolean();
+        }
+        long allocated = this.threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertFalse(cancelled);
+        return allocated;
+    }
+
+    @Test
+    public void firingUnsubscribedPacketDoesNotAllocate() {
+        PacketReceivePing packet = new PacketReceivePing();
+        assertFalse(this.bus.hasPacketSubscribers(PacketReceivePing.class));
+
+        long allocated = allocatedBytes(() -> this.bus.hasPacketSubscribers(packet.getClass())
+                && this.bus.firePacket(null, packet));
+
+        // Well under a byte per dispatch, leaving room for the measurement itself
+        assertThat(allocated, lessThan((long) ITERATIONS));
+    }
+
+    @Test
+    public void dispatchingUnsubscribedPacketDoesNotAllocate() {
+        PacketReceivePing packet = new PacketReceivePing();
+
+        long allocated = allocatedBytes(() -> this.bus.firePacket(null, packet));
+
+        assertThat(allocated, lessThan((long) ITERATIONS));
+    }
+
+    @Test
+    public void dispatchingSubscribedPacketIsMeasured() {
+        PacketReceiveHandshake packet = new PacketReceiveHandshake();
+        assertTrue(this.bus.hasPacketSubscribers(PacketReceiveHandshake.class));
+
+        // Creating the packet event allocates, which shows the measurement is able to see it
+        long allocated = allocatedBytes(() -> this.bus.firePacket(null, packet));
+
+        assertThat(allocated, greaterThan((long) ITERATIONS));
+    }
+
+    public static class HandshakeListener implements Listener {
+
+        @Subscribe
+        public void onHandshake(PacketEvent<PacketReceiveHandshake> event) {
+            // only registered to populate the handler index
+        }
+
+    }
+
+}
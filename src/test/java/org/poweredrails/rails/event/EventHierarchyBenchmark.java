@@ -0,0 +1,190 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * Measures the cost of firing events 1, 4 and 8 classes deep, each reaching the same two handlers: one subscribed
+ * to {@link Event} and one to the top of the hierarchy. Once an event's class has been resolved, the event bus
+ * should cost the same at every depth.
+ *
+ * <p>The bus is compared against checking every registered handler for assignability and sorting the matches by
+ * priority on each dispatch, the naive way of dispatching to supertypes. A hundred other listeners are registered
+ * so there is something to check. Run with {@code main}, optionally passing the seconds to measure each depth
+ * for.</p>
+ */
+public final class EventHierarchyBenchmark {
+
+    private static final EventPriorityComparator COMPARATOR = new EventPriorityComparator();
+
+    private static double measure(IntSupplier fire, long nanos) {
+        long sink = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            sink += fire.getAsInt();
+        }
+
+        long events = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 10_000; i++) {
+                sink += fire.getAsInt();
+            }
+
+            events += 10_000;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+
+        if (sink < 0) {
+            throw new IllegalStateException("The handlers overflowed!");
+        }
+
+        return (double) elapsed / events;
+    }
+
+    /**
+     * Dispatches to every handler of a supertype of the event, checking each registered handler and sorting the
+     * matches on every call.
+     */
+    private static int dispatchByScan(List<EventHandler> handlers, Event event) {
+        List<EventHandler> matches = new ArrayList<>();
+        for (EventHandler handler : handlers) {
+            if (handler.handlesEvent(event.getClass())) {
+                matches.add(handler);
+            }
+        }
+
+        matches.sort(COMPARATOR);
+        for (EventHandler handler : matches) {
+            handler.handle(event);
+        }
+
+        return matches.size();
+    }
+
+    public static class Depth1 implements Event {
+
+        private int handled;
+
+    }
+
+    public static class Depth2 extends Depth1 {
+    }
+
+    public static class Depth3 extends Depth2 {
+    }
+
+    public static class Depth4 extends Depth3 {
+    }
+
+    public static class Depth5 extends Depth4 {
+    }
+
+    public static class Depth6 extends Depth5 {
+    }
+
+    public static class Depth7 extends Depth6 {
+    }
+
+    public static class Depth8 extends Depth7 {
+    }
+
+    public static class UnrelatedEvent implements Event {
+    }
+
+    public static class HierarchyListener implements Listener {
+
+        @Subscribe
+        public void onEvent(Event event) {
+            if (event instanceof Depth1) {
+                ((Depth1) event).handled++;
+            }
+        }
+
+        @Subscribe(priority = EventPriority.HIGH)
+        public void onDepth1(Depth1 event) {
+            event.handled++;
+        }
+
+    }
+
+    public static class UnrelatedListener implements Listener {
+
+        @Subscribe
+        public void onUnrelated(UnrelatedEvent event) {
+            // only registered so there are handlers that don't match
+        }
+
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args the seconds to measure each depth for, 1 by default
+     */
+    public static void main(String[] args) {
+        long nanos = (long) ((args.length > 0 ? Double.parseDouble(args[0]) : 1) * 1e9);
+
+        EventBus bus = new EventBus(1, 16);
+        ListenerRegistry registry = new ListenerRegistry();
+        HierarchyListener hierarchyListener = new HierarchyListener();
+        bus.registerListener(hierarchyListener);
+        registry.register(hierarchyListener);
+
+        for (int i = 0; i < 100; i++) {
+            UnrelatedListener listener = new UnrelatedListener();
+            bus.registerListener(listener);
+            registry.register(listener);
+        }
+
+        List<EventHandler> handlers = registry.getHandlers();
+        Depth1[] events = { new Depth1(), new Depth4(), new Depth8() };
+        int[] depths = { 1, 4, 8 };
+
+        // Every depth is fired before any is measured, so the first measured doesn't get call sites that have
+        // only seen its own class
+        for (Depth1 event : events) {
+            measure(() -> {
+                bus.fire(event);
+                return event.handled;
+            }, nanos / 4);
+            measure(() -> dispatchByScan(handlers, event), nanos / 4);
+        }
+
+        for (int i = 0; i < events.length; i++) {
+            Depth1 event = events[i];
+            System.out.printf("depth %d: event bus %,7.1f ns/event, scan %,8.1f ns/event%n", depths[i],
+                    measure(() -> {
+                        bus.fire(event);
+                        return event.handled;
+                    }, nanos), measure(() -> dispatchByScan(handlers, event), nanos));
+        }
+
+        bus.shutdown();
+    }
+
+}
@@ -0,0 +1,308 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.event;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.poweredrails.rails.net.packet.handshake.PacketReceiveHandshake;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ListenerRegistryTest {
+
+    private final ListenerRegistry registry = new ListenerRegistry();
+    private final EventDispatcher dispatcher = new EventDispatcher(this.registry, new EventProfiler(this.registry));
+
+    @Test
+    public void keepsEveryHandlerOfEqualPriority() {
+        this.registry.register(new NormalListener("a"));
+        this.registry.register(new NormalListener("b"));
+        this.registry.register(new NormalListener("c"));
+
+        List<String> calls = new ArrayList<>();
+        this.dispatcher.dispatch(new TestEvent(calls));
+
+        assertEquals(Arrays.asList("a", "b", "c"), calls);
+    }
+
+    @Test
+    public void ordersByPriorityThenRegistration() {
+        this.registry.register(new LowListener("low1"));
+        this.registry.register(new NormalListener("normal1"));
+        this.registry.register(new HighListener("high1"));
+        this.registry.register(new NormalListener("normal2"));
+        this.registry.register(new LowListener("low2"));
+        this.registry.register(new HighListener("high2"));
+
+        List<String> calls = new ArrayList<>();
+        this.dispatcher.dispatch(new TestEvent(calls));
+
+        assertEquals(Arrays.asList("high1", "high2", "normal1", "normal2", "low1", "low2"), calls);
+    }
+
+    @Test
+    public void unregisterOnlyRemovesThatListener() {
+        NormalListener b = new NormalListener("b");
+        this.registry.register(new NormalListener("a"));
+        this.registry.register(b);
+        this.registry.register(new NormalListener("c"));
+
+        this.registry.unregister(b);
+        List<String> calls = new ArrayList<>();
+        this.dispatcher.dispatch(new TestEvent(calls));
+
+        assertEquals(Arrays.asList("a", "c"), calls);
+    }
+
+    @Test
+    public void sharesExecutorsBetweenListenersOfTheSameClass() {
+        this.registry.register(new NormalListener("a"));
+        this.registry.register(new NormalListener("b"));
+        this.registry.register(new HighListener("c"));
+
+        List<EventHandler> handlers = this.registry.getHandlers();
+        EventHandler high = handlers.get(0);
+        EventHandler normalA = handlers.get(1);
+        EventHandler normalB = handlers.get(2);
+
+        assertSame(normalA.getExecutor(), normalB.getExecutor());
+        assertNotSame(normalA.getExecutor(), high.getExecutor());
+    }
+
+    @Test
+    public void registersConcurrentlyWhileDispatching() throws Exception {
+        int registerThreads = 4;
+        int listenersPerThread = 500;
+        int fireThreads = 2;
+
+        ExecutorService executor = Executors.newFixedThreadPool(registerThreads + fireThreads);
+        CyclicBarrier start = new CyclicBarrier(registerThreads + fireThreads);
+        CountDownLatch registered = new CountDownLatch(registerThreads);
+        AtomicBoolean done = new AtomicBoolean();
+        EventPriorityComparator comparator = new EventPriorityComparator();
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < registerThreads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < listenersPerThread; i++) {
+                        switch (i % 3) {
+                            case 0:
+                                this.registry.register(new LowListener(null));
+                                break;
+                            case 1:
+                                this.registry.register(new NormalListener(null));
+                                break;
+                            default:
+                                this.registry.register(new HighListener(null));
+                                break;
+                        }
+                    }
+
+                    registered.countDown();
+                    return null;
+                }));
+            }
+
+            for (int t = 0; t < fireThreads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int previous = 0;
+
+                    while (!done.get()) {
+                        TestEvent event = new TestEvent(null);
+                        EventHandler[] handlers = this.registry.getHandlersFor(event);
+
+                        // Handlers are only ever added, so a reader must never see fewer than it saw before
+                        assertThat(handlers.length, greaterThanOrEqualTo(previous));
+                        for (int i = 1; i < handlers.length; i++) {
+                            assertThat(comparator.compare(handlers[i - 1], handlers[i]), lessThan(0));
+                        }
+
+                        this.dispatcher.dispatch(event, handlers);
+                        assertEquals(handlers.length, event.count);
+                        previous = handlers.length;
+                    }
+
+                    return null;
+                }));
+            }
+
+            assertTrue(registered.await(30, TimeUnit.SECONDS));
+            done.set(true);
+
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        TestEvent event = new TestEvent(null);
+        this.dispatcher.dispatch(event);
+
+        assertEquals(registerThreads * listenersPerThread, event.count);
+        assertEquals(registerThreads * listenersPerThread, this.registry.getHandlers().size());
+    }
+
+    @Test
+    public void publishesEventAndPacketHandlersTogether() throws Exception {
+        int listeners = 2000;
+        PacketReceiveHandshake packet = new PacketReceiveHandshake();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicBoolean done = new AtomicBoolean();
+
+        try {
+            Future<?> reader = executor.submit(() -> {
+                boolean eventsFirst = false;
+
+                while (!done.get()) {
+                    // Both indexes are read in alternating order, so publishing either one before the other shows up
+                    eventsFirst = !eventsFirst;
+                    int events;
+                    int packets;
+                    if (eventsFirst) {
+                        events = this.registry.getHandlersFor(new TestEvent(null)).length;
+                        packets = this.registry.getHandlersFor(packet).length;
+                        assertThat(packets, greaterThanOrEqualTo(events));
+                    } else {
+                        packets = this.registry.getHandlersFor(packet).length;
+                        events = this.registry.getHandlersFor(new TestEvent(null)).length;
+                        assertThat(events, greaterThanOrEqualTo(packets));
+                    }
+                }
+
+                return null;
+            });
+
+            for (int i = 0; i < listeners; i++) {
+                this.registry.register(new EventAndPacketListener());
+            }
+
+            done.set(true);
+            reader.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(listeners, this.registry.getHandlersFor(packet).length);
+        assertEquals(listeners, this.registry.getHandlersFor(new TestEvent(null)).length);
+    }
+
+    public static class TestEvent implements Event {
+
+        private final List<String> calls;
+        private int count;
+
+        TestEvent(List<String> calls) {
+            this.calls = calls == null ? null : Collections.synchronizedList(calls);
+        }
+
+        void called(String name) {
+            this.count++;
+            if (this.calls != null) {
+                this.calls.add(name);
+            }
+        }
+
+    }
+
+    public static class LowListener implements Listener {
+
+        private final String name;
+
+        LowListener(String name) {
+            this.name = name;
+        }
+
+        @Subscribe(priority = EventPriority.LOW)
+        public void onTest(TestEvent event) {
+            event.called(this.name);
+        }
+
+    }
+
+    public static class NormalListener implements Listener {
+
+        private final String name;
+
+        NormalListener(String name) {
+            this.name = name;
+        }
+
+        @Subscribe
+        public void onTest(TestEvent event) {
+            event.called(this.name);
+        }
+
+    }
+
+    public static class HighListener implements Listener {
+
+        private final String name;
+
+        HighListener(String name) {
+            this.name = name;
+        }
+
+        @Subscribe(priority = EventPriority.HIGH)
+        public void onTest(TestEvent event) {
+            event.called(this.name);
+        }
+
+    }
+
+    public static class EventAndPacketListener implements Listener {
+
+        @Subscribe
+        public void onTest(TestEvent event) {
+            event.called(null);
+        }
+
+        @Subscribe
+        public void onHandshake(PacketEvent<PacketReceiveHandshake> event) {}
+
+    }
+
+}
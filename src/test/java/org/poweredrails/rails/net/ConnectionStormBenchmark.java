@@ -0,0 +1,193 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import org.poweredrails.rails.Main;
+import org.poweredrails.rails.net.admission.AdmissionController;
+import org.poweredrails.rails.net.channel.TransportType;
+import org.poweredrails.rails.util.auth.SessionServerSettings;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Opens a storm of connections against a local server, once bound to a single acceptor and once with an acceptor
+ * per boss thread using SO_REUSEPORT, and measures how fast the server turns them into sessions.
+ *
+ * <p>Connections are opened as fast as the client allows, with a bounded amount in flight, and held open until the
+ * server has a session for every one of them. Every connection takes two file descriptors on this machine, so the
+ * descriptor limit ({@code ulimit -n}) needs to be well above twice the amount of connections. SO_REUSEPORT is
+ * only supported by the epoll transport, which is picked the same way the server picks it, honouring
+ * {@code rails.network.disableNative}; on NIO only the single acceptor is measured. Run with {@code main}, optionally
+ * passing the amount of connections and the amount of boss threads.</p>
+ */
+public final class ConnectionStormBenchmark {
+
+    private static final int IN_FLIGHT = 1024;
+
+    private final Logger logger = Logger.getLogger("Rails");
+
+    private final TransportType transport;
+    private final int bossThreads;
+    private final boolean reusePort;
+
+    private ConnectionStormBenchmark(TransportType transport, int bossThreads, boolean reusePort) {
+        this.transport = transport;
+        this.bossThreads = bossThreads;
+        this.reusePort = reusePort;
+    }
+
+    private void run(int connections) throws IOException, InterruptedException {
+        NetworkManager networkManager = new NetworkManager(this.logger, this.transport, this.bossThreads, 0,
+                this.reusePort, NetworkManager.DEFAULT_COMPRESSION_THRESHOLD, SessionServerSettings.DEFAULT,
+                new AdmissionController(Main.getScheduler(), 20, 20, 40, 1000));
+        EventLoopGroup client = this.transport.newEventLoopGroup(Runtime.getRuntime().availableProcessors());
+
+        try {
+            InetSocketAddress address = new InetSocketAddress("127.0.0.1", freePort());
+            networkManager.bindTo(address).sync();
+
+            Bootstrap bootstrap = new Bootstrap()
+                    .group(client)
+                    .channel(this.transport.getChannelClass())
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 10_000)
+                    .handler(new IdleHandler());
+
+            Semaphore inFlight = new Semaphore(IN_FLIGHT);
+            Queue<Channel> channels = new ConcurrentLinkedQueue<>();
+            AtomicInteger failures = new AtomicInteger();
+            long[] latencies = new long[connections];
+
+            long start = System.nanoTime();
+            for (int i = 0; i < connections; i++) {
+                inFlight.acquire();
+
+                final int index = i;
+                final long connectStart = System.nanoTime();
+                bootstrap.connect(address).addListener(f -> {
+                    latencies[index] = System.nanoTime() - connectStart;
+                    if (f.isSuccess()) {
+                        channels.add(((ChannelFuture) f).channel());
+                    } else {
+                        failures.incrementAndGet();
+                    }
+
+                    inFlight.release();
+                });
+            }
+
+            inFlight.acquire(IN_FLIGHT);
+            long connected = System.nanoTime() - start;
+
+            int expected = connections - failures.get();
+            awaitSessions(networkManager, expected);
+            long accepted = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            System.out.printf("%-5s %-12s %,7d connections: connected %,8.0f/sec, sessions %,8.0f/sec, "
+                            + "connect p50 %,6.2f ms, p99 %,7.2f ms, max %,7.2f ms, %,d failed%n",
+                    this.transport.getName(), this.reusePort ? "reuseport" : "one acceptor", connections,
+                    expected / (connected / 1e9), expected / (accepted / 1e9),
+                    latencies[connections / 2] / 1e6, latencies[(int) (connections * 0.99)] / 1e6,
+                    latencies[connections - 1] / 1e6, failures.get());
+
+            for (Channel channel : channels) {
+                channel.close();
+            }
+
+            awaitSessions(networkManager, 0);
+        } finally {
+            client.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+            networkManager.shutdown();
+        }
+    }
+
+    private static void awaitSessions(NetworkManager networkManager, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (networkManager.getSessionManager().getSessions().size() != expected) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("The server has " + networkManager.getSessionManager()
+                        .getSessions().size() + " sessions, expected " + expected + "!");
+            }
+
+            Thread.sleep(1);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        // Every acceptor binds to the same port, so it can't be left to the first bind to pick one
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private static final class IdleHandler extends ChannelInboundHandlerAdapter {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args the amount of connections to open, 20000 by default, and the amount of boss threads, the amount
+     *             of processors by default
+     * @throws IOException if no free port could be found
+     * @throws InterruptedException if interrupted while waiting for the connections
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int bossThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Logger.getLogger("Rails").setLevel(Level.WARNING);
+
+        TransportType transport = TransportType.best(!Boolean.getBoolean("rails.network.disableNative"));
+
+        // Once to warm up, then measured
+        new ConnectionStormBenchmark(transport, bossThreads, false).run(Math.min(connections, 2000));
+        new ConnectionStormBenchmark(transport, bossThreads, false).run(connections);
+
+        if (transport.supportsReusePort()) {
+            new ConnectionStormBenchmark(transport, bossThreads, true).run(connections);
+        } else {
+            System.out.println("SO_REUSEPORT is not supported by the " + transport.getName() + " transport");
+        }
+
+        System.exit(0);
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.channel;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares accept and read throughput of each transport available on this machine, over loopback.
+ *
+ * <p>For each transport a server is bound with one boss and one worker thread, the same as the server's defaults,
+ * and a client on the same transport first opens a batch of connections, timing how fast they are accepted, and
+ * then streams data down a few of them, timing how fast the server reads it. Run with {@code main}, optionally
+ * passing the amount of connections to open and the megabytes to stream.</p>
+ */
+public final class TransportBenchmark {
+
+    private static final int CHUNK = 16 * 1024;
+
+    private final TransportType transport;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    private volatile CountDownLatch acceptLatch;
+    private volatile CountDownLatch readLatch;
+    private volatile long readTarget;
+
+    private TransportBenchmark(TransportType transport) {
+        this.transport = transport;
+    }
+
+    private void run(int connections, int megabytes) throws InterruptedException {
+        EventLoopGroup boss = this.transport.newEventLoopGroup(1);
+        EventLoopGroup worker = this.transport.newEventLoopGroup(1);
+        EventLoopGroup client = this.transport.newEventLoopGroup(2);
+
+        try {
+            Channel server = new ServerBootstrap()
+                    .group(boss, worker)
+                    .channel(this.transport.getServerChannelClass())
+                    .option(ChannelOption.SO_BACKLOG, 4096)
+                    .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                    .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                    .childOption(ChannelOption.TCP_NODELAY, true)
+                    .childHandler(new CountingHandler())
+                    .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+
+            Bootstrap bootstrap = new Bootstrap()
+                    .group(client)
+                    .channel(this.transport.getChannelClass())
+                    .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .handler(new IdleHandler());
+
+            System.out.printf("%-5s accept: %,10.0f connections/sec, read: %,8.1f MB/sec%n", this.transport.getName(),
+                    measureAccepts(bootstrap, server.localAddress(), connections),
+                    measureReads(bootstrap, server.localAddress(), megabytes));
+
+            server.close().sync();
+        } finally {
+            client.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+            worker.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+            boss.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    private double measureAccepts(Bootstrap bootstrap, SocketAddress address, int connections)
+            throws InterruptedException {
+        this.accepted.set(0);
+        this.acceptLatch = new CountDownLatch(connections);
+
+        List<Channel> channels = new ArrayList<>(connections);
+        long start = System.nanoTime();
+
+        // Connect in batches, so the client doesn't overrun the listen backlog
+        for (int i = 0; i < connections; i += 256) {
+            List<ChannelFuture> batch = new ArrayList<>();
+            for (int j = i; j < Math.min(connections, i + 256); j++) {
+                batch.add(bootstrap.connect(address));
+            }
+
+            for (ChannelFuture future : batch) {
+                channels.add(future.sync().channel());
+            }
+        }
+
+        if (!this.acceptLatch.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Only " + this.accepted.get() + " connections were accepted!");
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        for (Channel channel : channels) {
+            channel.close();
+        }
+
+        return connections / (elapsed / 1e9);
+    }
+
+    private double measureReads(Bootstrap bootstrap, SocketAddress address, int megabytes)
+            throws InterruptedException {
+        int streams = 4;
+        long perStream = (long) megabytes * 1024 * 1024 / streams / CHUNK * CHUNK;
+
+        this.acceptLatch = new CountDownLatch(streams);
+        this.bytesRead.set(0);
+        this.readTarget = perStream * streams;
+        this.readLatch = new CountDownLatch(1);
+
+        List<Channel> channels = new ArrayList<>();
+        for (int i = 0; i < streams; i++) {
+            channels.add(bootstrap.connect(address).sync().channel());
+        }
+
+        this.acceptLatch.await(10, TimeUnit.SECONDS);
+
+        long start = System.nanoTime();
+        for (Channel channel : channels) {
+            channel.eventLoop().execute(() -> stream(channel, perStream));
+        }
+
+        if (!this.readLatch.await(120, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Only " + this.bytesRead.get() + " bytes were read!");
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        for (Channel channel : channels) {
+            channel.close().sync();
+        }
+
+        return this.readTarget / 1024.0 / 1024.0 / (elapsed / 1e9);
+    }
+
+    /**
+     * Writes the given amount of bytes down a channel, only writing more while the channel is writable.
+     */
+    private static void stream(Channel channel, long remaining) {
+        while (remaining > 0 && channel.isWritable()) {
+            ByteBuf chunk = channel.alloc().directBuffer(CHUNK);
+            chunk.writerIndex(CHUNK);
+            channel.write(chunk);
+            remaining -= CHUNK;
+        }
+
+        channel.flush();
+
+        if (remaining > 0) {
+            final long left = remaining;
+            channel.eventLoop().schedule(() -> stream(channel, left), 50, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private static final class IdleHandler extends ChannelInboundHandlerAdapter {
+    }
+
+    @ChannelHandler.Sharable
+    private final class CountingHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            TransportBenchmark.this.accepted.incrementAndGet();
+            TransportBenchmark.this.acceptLatch.countDown();
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf buf = (ByteBuf) msg;
+            long read = TransportBenchmark.this.bytesRead.addAndGet(buf.readableBytes());
+            buf.release();
+
+            if (read >= TransportBenchmark.this.readTarget) {
+                TransportBenchmark.this.readLatch.countDown();
+            }
+        }
+
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args the amount of connections to open, 10000 by default, and the megabytes to stream, 2048 by default
+     * @throws InterruptedException if interrupted while waiting for the transports
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int megabytes = args.length > 1 ? Integer.parseInt(args[1]) : 2048;
+
+        if (!Epoll.isAvailable()) {
+            System.out.println("epoll is not available: " + Epoll.unavailabilityCause());
+        }
+
+        for (TransportType transport : TransportType.values()) {
+            if (transport == TransportType.EPOLL && !Epoll.isAvailable()) {
+                continue;
+            }
+
+            try {
+                // Once to warm up, then measured
+                new TransportBenchmark(transport).run(Math.min(connections, 1000), Math.min(megabytes, 256));
+                new TransportBenchmark(transport).run(connections, megabytes);
+            } catch (IllegalStateException e) {
+                System.out.println(transport.getName() + " could not be benchmarked: " + e.getMessage());
+            }
+        }
+    }
+
+}
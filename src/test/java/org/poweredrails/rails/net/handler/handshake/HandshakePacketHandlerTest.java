@@ -0,0 +1,119 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.handler.handshake;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Test;
+import org.poweredrails.rails.concurrent.ScheduledQueueExecutor;
+import org.poweredrails.rails.concurrent.TickLoop;
+import org.poweredrails.rails.net.admission.AdmissionController;
+import org.poweredrails.rails.net.buffer.Buffer;
+import org.poweredrails.rails.net.packet.handshake.PacketReceiveHandshake;
+import org.poweredrails.rails.net.session.Session;
+import org.poweredrails.rails.net.session.SessionStateEnum;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+public class HandshakePacketHandlerTest {
+
+    private final TickLoop tickLoop = new TickLoop();
+    private final ScheduledQueueExecutor scheduler = new ScheduledQueueExecutor(this.tickLoop);
+
+    private final AdmissionController admissionController = new AdmissionController(this.scheduler, 2, 20, 40, 1000);
+    private final HandshakePacketHandler handler = new HandshakePacketHandler(this.admissionController);
+
+    @After
+    public void tearDown() {
+        this.scheduler.shutdownNow();
+    }
+
+    @Test
+    public void statusPingsDoNotCountTowardsTheLoginThrottle() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(handshake(SessionStateEnum.STATUS).isOpen());
+        }
+
+        assertTrue(handshake(SessionStateEnum.LOGIN).isOpen());
+        assertTrue(handshake(SessionStateEnum.LOGIN).isOpen());
+        assertEquals(0, this.admissionController.getThrottledLogins());
+    }
+
+    @Test
+    public void loginsOverThePerAddressLimitAreDisconnected() {
+        assertTrue(handshake(SessionStateEnum.LOGIN).isOpen());
+        assertTrue(handshake(SessionStateEnum.LOGIN).isOpen());
+
+        EmbeddedChannel throttled = handshake(SessionStateEnum.LOGIN);
+        assertFalse(throttled.isOpen());
+        assertEquals(1, this.admissionController.getThrottledLogins());
+
+        // Status pings from the same address are still answered
+        assertTrue(handshake(SessionStateEnum.STATUS).isOpen());
+    }
+
+    private EmbeddedChannel handshake(SessionStateEnum state) {
+        final EmbeddedChannel channel = new RemoteChannel(new InetSocketAddress("127.0.0.1", 50000));
+
+        Buffer buffer = new Buffer(Unpooled.buffer());
+        buffer.writeVarInt(47, 2);
+        buffer.writeString("localhost");
+        buffer.writeShort((short) 25565);
+        buffer.writeVarInt(state.ordinal(), 2);
+
+        PacketReceiveHandshake packet = new PacketReceiveHandshake();
+        packet.fromBuffer(buffer);
+        buffer.getByteBuffer().release();
+
+        packet.setSender(new Session(channel));
+        this.handler.onHandshakePacket(packet);
+        return channel;
+    }
+
+    /**
+     * An embedded channel which reports a real remote address, so it can be throttled.
+     */
+    private static class RemoteChannel extends EmbeddedChannel {
+
+        private final SocketAddress remoteAddress;
+
+        RemoteChannel(SocketAddress remoteAddress) {
+            this.remoteAddress = remoteAddress;
+        }
+
+        @Override
+        protected SocketAddress remoteAddress0() {
+            return this.remoteAddress;
+        }
+
+    }
+
+}
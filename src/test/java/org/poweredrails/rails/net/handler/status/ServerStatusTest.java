@@ -0,0 +1,140 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.handler.status;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.poweredrails.rails.net.buffer.Buffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ServerStatusTest {
+
+    @Test
+    public void encodesTheStatusJson() throws Exception {
+        ServerStatus status = new ServerStatus();
+        status.setMotd("A Rails server");
+        status.setOnlinePlayers(3);
+
+        ByteBuf buf = status.getEncoded();
+        try {
+            Buffer in = new Buffer(buf);
+            assertEquals(0x00, in.readVarInt(2));
+
+            JSONObject json = new JSONObject(in.readString());
+            assertEquals("A Rails server", json.getJSONObject("description").getString("text"));
+            assertEquals(3, json.getJSONObject("players").getInt("online"));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void encodesLegacyResponses() {
+        ServerStatus status = new ServerStatus();
+        status.setMotd("A Rails server");
+        status.setOnlinePlayers(3);
+        status.setMaxPlayers(20);
+
+        assertEquals("§1\u000047\u00001.8.8\u0000A Rails server\u00003\u000020", // §
+                readLegacy(status.getLegacyEncoded(false)));
+        assertEquals("A Rails server§3§20", readLegacy(status.getLegacyEncoded(true))); // §
+    }
+
+    private static String readLegacy(ByteBuf buf) {
+        try {
+            assertEquals(0xFF, buf.readUnsignedByte());
+
+            int length = buf.readUnsignedShort();
+            assertEquals(length * 2, buf.readableBytes());
+
+            return buf.toString(StandardCharsets.UTF_16BE);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void regeneratesAtMostOncePerInterval() throws Exception {
+        ServerStatus status = new ServerStatus(500, TimeUnit.MILLISECONDS);
+        status.setMotd("first");
+        String first = status.getJson();
+
+        status.setMotd("second");
+        assertEquals(first, status.getJson());
+
+        Thread.sleep(600);
+        assertTrue(status.getJson().contains("second"));
+    }
+
+    @Test
+    public void readersNeverSeeAReleasedResponse() throws Exception {
+        ServerStatus status = new ServerStatus(0, TimeUnit.NANOSECONDS);
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                readers.add(executor.submit(() -> {
+                    for (int i = 0; i < 50_000; i++) {
+                        status.getEncoded().release();
+                        status.getLegacyEncoded(i % 2 == 0).release();
+                    }
+
+                    return null;
+                }));
+            }
+
+            // Every change makes the next reader regenerate the responses and release the previous ones
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 0; !done.get(); i++) {
+                    status.setOnlinePlayers(i);
+                }
+            });
+
+            for (Future<?> reader : readers) {
+                reader.get(30, TimeUnit.SECONDS);
+            }
+
+            done.set(true);
+            writer.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
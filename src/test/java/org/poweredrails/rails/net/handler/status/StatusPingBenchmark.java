@@ -0,0 +1,168 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.handler.status;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.poweredrails.rails.Main;
+import org.poweredrails.rails.event.Listener;
+import org.poweredrails.rails.event.PacketEvent;
+import org.poweredrails.rails.event.Subscribe;
+import org.poweredrails.rails.net.buffer.Buffer;
+import org.poweredrails.rails.net.handler.HandlerRegistry;
+import org.poweredrails.rails.net.packet.FrameDecoder;
+import org.poweredrails.rails.net.packet.FrameEncoder;
+import org.poweredrails.rails.net.packet.PacketDecoder;
+import org.poweredrails.rails.net.packet.PacketEncoder;
+import org.poweredrails.rails.net.packet.PacketHandler;
+import org.poweredrails.rails.net.packet.registry.PacketRegistry;
+import org.poweredrails.rails.net.packet.status.PacketSendStatusResponse;
+import org.poweredrails.rails.net.session.Session;
+import org.poweredrails.rails.net.session.SessionManager;
+import org.poweredrails.rails.net.session.SessionStateEnum;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures server list pings per second on a single thread. Each ping is a new connection running the handshake
+ * and status request through the same decoders, handlers and encoders the server uses, on an embedded channel.
+ *
+ * <p>The pre-encoded fast path is measured first, then the path taken while something listens for status
+ * responses, which builds and encodes a response packet per ping. Run with {@code main}, optionally passing the
+ * seconds to measure each path for.</p>
+ */
+public final class StatusPingBenchmark {
+
+    private final Logger logger = Logger.getLogger("Rails");
+
+    private final PacketRegistry packetRegistry = new PacketRegistry();
+    private final SessionManager sessionManager = new SessionManager(this.packetRegistry);
+    private final HandlerRegistry handlerRegistry;
+
+    private final byte[] request;
+
+    private StatusPingBenchmark(ServerStatus status) {
+        this.handlerRegistry = new HandlerRegistry(-1, null, null, status);
+
+        Buffer handshake = new Buffer(Unpooled.buffer());
+        handshake.writeVarInt(0x00, 2);
+        handshake.writeVarInt(47, 2);
+        handshake.writeString("localhost");
+        handshake.writeShort((short) 25565);
+        handshake.writeVarInt(SessionStateEnum.STATUS.ordinal(), 2);
+
+        ByteBuf frames = Unpooled.buffer();
+        writeFrame(frames, handshake.getByteBuffer());
+        writeFrame(frames, Unpooled.wrappedBuffer(new byte[] { 0x00 }));
+
+        this.request = new byte[frames.readableBytes()];
+        frames.readBytes(this.request);
+    }
+
+    private static void writeFrame(ByteBuf out, ByteBuf packet) {
+        new Buffer(out).writeVarInt(packet.readableBytes(), 2);
+        out.writeBytes(packet);
+    }
+
+    /**
+     * Runs a single ping on a new connection.
+     * @return the size of the response sent back
+     */
+    private int ping() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        Session session = this.sessionManager.getSession(channel);
+
+        // Added in front of the embedded channel's own last handler, in reverse order
+        channel.pipeline().addFirst("handler", new PacketHandler(this.logger, session, this.sessionManager,
+                this.packetRegistry, this.handlerRegistry));
+        channel.pipeline().addFirst("encoder", new PacketEncoder(this.sessionManager, this.packetRegistry));
+        channel.pipeline().addFirst("decoder", new PacketDecoder());
+        channel.pipeline().addFirst("frame_encoder", new FrameEncoder());
+        channel.pipeline().addFirst("frame_decoder", new FrameDecoder());
+
+        channel.writeInbound(Unpooled.wrappedBuffer(this.request));
+
+        ByteBuf response = (ByteBuf) channel.readOutbound();
+        int size = response.readableBytes();
+        response.release();
+
+        channel.finish();
+        return size;
+    }
+
+    private double measure(long nanos) {
+        long sink = 0;
+        for (int i = 0; i < 50_000; i++) {
+            sink += ping();
+        }
+
+        int pings = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 1000; i++) {
+                sink += ping();
+            }
+
+            pings += 1000;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+
+        if (sink == 0) {
+            throw new IllegalStateException("No responses were sent!");
+        }
+
+        return pings / (elapsed / 1e9);
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args the seconds to measure each path for, 5 by default
+     */
+    public static void main(String[] args) {
+        long nanos = (long) ((args.length > 0 ? Double.parseDouble(args[0]) : 5) * 1e9);
+        Logger.getLogger("Rails").setLevel(Level.WARNING);
+
+        StatusPingBenchmark benchmark = new StatusPingBenchmark(new ServerStatus());
+        System.out.printf("pre-encoded response: %,.0f pings/sec%n", benchmark.measure(nanos));
+
+        Main.getEventBus().registerListener(new StatusResponseListener());
+        System.out.printf("response packet:      %,.0f pings/sec%n", benchmark.measure(nanos));
+
+        System.exit(0);
+    }
+
+    public static class StatusResponseListener implements Listener {
+
+        @Subscribe
+        public void onStatusResponse(PacketEvent<PacketSendStatusResponse> event) {
+            // only registered so status responses are built as packets
+        }
+
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.packet;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Measures the bytes allocated and the throughput per encrypted packet, for the encryption handler and for the
+ * approach it replaced, which encrypted into a new heap {@link ByteBuffer} per packet and wrapped it with
+ * {@link Unpooled}. Both run on an embedded channel using the pooled allocator the server uses, so the channel's
+ * own allocations are the same for both.
+ *
+ * <p>Run with {@code main}, optionally passing the packet sizes to measure.</p>
+ */
+public final class EncryptionHandlerBenchmark {
+
+    /**
+     * The bytes encrypted while warming up and while measuring each path. AES/CFB8 runs the block cipher once per
+     * byte, so the amount of packets is scaled by their size.
+     */
+    private static final long BYTES = 32 * 1024 * 1024;
+
+    private static final SecretKey SECRET = new SecretKeySpec(new byte[] {
+        1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16
+    }, "AES");
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private EncryptionHandlerBenchmark() {
+        this.threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private void measure(String name, ChannelHandler handler, int size) {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+        channel.pipeline().addFirst("encrypt", handler);
+
+        ByteBuf packet = PooledByteBufAllocator.DEFAULT.buffer(size);
+        packet.writerIndex(size);
+
+        final int iterations = (int) Math.max(1000, BYTES / size);
+
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += encrypt(channel, packet);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long allocated = this.threads.getThreadAllocatedBytes(threadId);
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += encrypt(channel, packet);
+        }
+        final long elapsed = System.nanoTime() - start;
+        allocated = this.threads.getThreadAllocatedBytes(threadId) - allocated;
+
+        packet.release();
+        channel.finish();
+
+        if (sink == 0) {
+            throw new IllegalStateException("Nothing was encrypted!");
+        }
+
+        System.out.printf("%-28s %,6d byte packets: %,8.1f bytes allocated/packet, %,8.1f MB/sec%n", name, size,
+                (double) allocated / iterations, (double) size * iterations / 1024 / 1024 / (elapsed / 1e9));
+    }
+
+    private static int encrypt(EmbeddedChannel channel, ByteBuf packet) {
+        channel.writeOutbound(packet.retain().readerIndex(0));
+
+        ByteBuf encrypted = (ByteBuf) channel.readOutbound();
+        int size = encrypted.readableBytes();
+        encrypted.release();
+        return size;
+    }
+
+    /**
+     * The encoding half of the encryption handler as it was before it encrypted into the channel's allocator.
+     */
+    private static final class HeapBufferEncryptor extends MessageToMessageEncoder<ByteBuf> {
+
+        private final Cipher cipher;
+
+        private HeapBufferEncryptor() throws Exception {
+            this.cipher = Cipher.getInstance("AES/CFB8/NoPadding");
+            this.cipher.init(Cipher.ENCRYPT_MODE, SECRET, new IvParameterSpec(SECRET.getEncoded()));
+        }
+
+        @Override
+        protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+            ByteBuffer buffer = ByteBuffer.allocate(msg.readableBytes());
+            this.cipher.update(msg.nioBuffer(), buffer);
+
+            buffer.flip();
+            out.add(Unpooled.wrappedBuffer(buffer));
+        }
+
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args the packet sizes to measure, 64, 512 and 8192 bytes by default
+     * @throws Exception if the ciphers could not be created
+     */
+    public static void main(String[] args) throws Exception {
+        String[] sizes = args.length > 0 ? args : new String[] { "64", "512", "8192" };
+        EncryptionHandlerBenchmark benchmark = new EncryptionHandlerBenchmark();
+
+        for (String size : sizes) {
+            benchmark.measure("heap buffer per packet", new HeapBufferEncryptor(), Integer.parseInt(size));
+            benchmark.measure("channel allocator", new EncryptionHandler(SECRET), Integer.parseInt(size));
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.packet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+import org.poweredrails.rails.net.handler.status.ServerStatus;
+
+public class LegacyPingHandlerTest {
+
+    private final ServerStatus status = new ServerStatus();
+
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() {
+        this.status.setMotd("A Rails server");
+        this.channel = new EmbeddedChannel(new LegacyPingHandler(this.status));
+    }
+
+    @Test
+    public void answersAPingSplitAcrossReadsInTheModernFormat() {
+        this.channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { (byte) 0xFE }));
+        assertNull(this.channel.readOutbound());
+        assertTrue(this.channel.isOpen());
+
+        this.channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { 0x01 }));
+
+        assertResponse(false);
+        assertFalse(this.channel.isOpen());
+    }
+
+    @Test
+    public void answersALonePingInTheBetaFormatAfterWaiting() throws Exception {
+        this.channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { (byte) 0xFE }));
+        assertNull(this.channel.readOutbound());
+
+        Thread.sleep(200);
+        this.channel.runScheduledPendingTasks();
+
+        assertResponse(true);
+        assertFalse(this.channel.isOpen());
+    }
+
+    @Test
+    public void dropsReadsAfterAnswering() {
+        final ByteBuf trailing = Unpooled.wrappedBuffer(new byte[] { (byte) 0xFA, 0x00, 0x0B });
+
+        this.channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { (byte) 0xFE, 0x01 }), trailing);
+
+        assertResponse(false);
+        assertFalse(this.channel.config().isAutoRead());
+        assertEquals(0, trailing.refCnt());
+        assertNull(this.channel.readInbound());
+    }
+
+    @Test
+    public void passesOnModernHandshakes() {
+        ByteBuf handshake = Unpooled.wrappedBuffer(new byte[] { 0x0F, 0x00, 0x2F });
+
+        this.channel.writeInbound(handshake);
+
+        assertEquals(handshake, this.channel.readInbound());
+        assertNull(this.channel.pipeline().get(LegacyPingHandler.class));
+        handshake.release();
+    }
+
+    private void assertResponse(boolean beta) {
+        ByteBuf response = (ByteBuf) this.channel.readOutbound();
+        ByteBuf expected = this.status.getLegacyEncoded(beta);
+        try {
+            assertTrue(ByteBufUtil.equals(expected, response));
+        } finally {
+            response.release();
+            expected.release();
+        }
+    }
+
+}
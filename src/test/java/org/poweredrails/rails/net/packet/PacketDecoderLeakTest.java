@@ -0,0 +1,233 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.packet;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.AbstractByteBufAllocator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ResourceLeakDetector;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.poweredrails.rails.net.buffer.Buffer;
+import org.poweredrails.rails.net.handler.HandlerRegistry;
+import org.poweredrails.rails.net.handler.status.ServerStatus;
+import org.poweredrails.rails.net.packet.registry.PacketRegistry;
+import org.poweredrails.rails.net.packet.status.PacketSendPong;
+import org.poweredrails.rails.net.session.Session;
+import org.poweredrails.rails.net.session.SessionManager;
+import org.poweredrails.rails.net.session.SessionStateEnum;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Runs frames through the inbound decoders and the packet handler, checking that every buffer involved ends up
+ * released, however the frames are split or whether they can be handled.
+ */
+public class PacketDecoderLeakTest {
+
+    private static final PacketRegistry PACKET_REGISTRY = new PacketRegistry();
+    private static final HandlerRegistry HANDLER_REGISTRY = new HandlerRegistry(-1, null, null, new ServerStatus());
+
+    private static ResourceLeakDetector.Level previousLevel;
+
+    private final TrackingAllocator alloc = new TrackingAllocator();
+
+    private EmbeddedChannel channel;
+    private Session session;
+
+    @BeforeClass
+    public static void enableParanoidLeakDetection() {
+        previousLevel = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+    }
+
+    @AfterClass
+    public static void restoreLeakDetection() {
+        ResourceLeakDetector.setLevel(previousLevel);
+    }
+
+    @Before
+    public void setUp() {
+        this.channel = new EmbeddedChannel();
+        this.channel.config().setAllocator(this.alloc);
+
+        SessionManager sessionManager = new SessionManager(PACKET_REGISTRY);
+        this.session = sessionManager.getSession(this.channel);
+
+        // The embedded channel keeps its own handler last to collect messages, so ours go in front of it
+        this.channel.pipeline().addFirst(new PacketHandler(Logger.getLogger("Rails"), this.session, sessionManager,
+                PACKET_REGISTRY, HANDLER_REGISTRY));
+        this.channel.pipeline().addFirst(new PacketDecoder());
+        this.channel.pipeline().addFirst(new FrameDecoder());
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            assertFalse(this.channel.finish());
+        } finally {
+            this.alloc.assertAllReleased();
+        }
+    }
+
+    private static byte[] frame(int id, byte[] payload) {
+        Buffer packet = new Buffer(Unpooled.buffer());
+        packet.writeVarInt(id, 2);
+        packet.getByteBuffer().writeBytes(payload);
+
+        Buffer frame = new Buffer(Unpooled.buffer());
+        frame.writeVarInt(packet.readableBytes(), 2);
+        frame.getByteBuffer().writeBytes(packet.getByteBuffer());
+
+        return toArray(frame.getByteBuffer());
+    }
+
+    private static byte[] handshake() {
+        Buffer payload = new Buffer(Unpooled.buffer());
+        payload.writeVarInt(47, 2);
+        payload.writeString("localhost");
+        payload.writeShort((short) 25565);
+        payload.writeVarInt(SessionStateEnum.STATUS.ordinal(), 2);
+
+        return frame(0x00, toArray(payload.getByteBuffer()));
+    }
+
+    private static byte[] toArray(ByteBuf buf) {
+        byte[] array = new byte[buf.readableBytes()];
+        buf.readBytes(array);
+        return array;
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        ByteBuf buf = Unpooled.buffer();
+        for (byte[] array : arrays) {
+            buf.writeBytes(array);
+        }
+
+        return toArray(buf);
+    }
+
+    private void writeInbound(byte[] bytes, int... splits) {
+        int start = 0;
+        for (int i = 0; i <= splits.length; i++) {
+            int end = i < splits.length ? splits[i] : bytes.length;
+
+            ByteBuf buf = this.alloc.buffer(end - start);
+            buf.writeBytes(bytes, start, end - start);
+            this.channel.writeInbound(buf);
+
+            start = end;
+        }
+    }
+
+    @Test
+    public void releasesSingleFrame() {
+        writeInbound(handshake());
+
+        assertEquals(SessionStateEnum.STATUS, this.session.getState());
+    }
+
+    @Test
+    public void releasesSeveralFramesReadAtOnce() {
+        // The handshake moves the session to the status state, where 0x01 is a ping
+        byte[] ping = frame(0x01, new byte[8]);
+        writeInbound(concat(handshake(), ping, ping, ping));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(this.channel.readOutbound(), instanceOf(PacketSendPong.class));
+        }
+    }
+
+    @Test
+    public void releasesFramesSplitAcrossReads() {
+        byte[] bytes = concat(handshake(), handshake());
+        writeInbound(bytes, 1, 3, 10, bytes.length / 2 + 1);
+
+        assertEquals(SessionStateEnum.STATUS, this.session.getState());
+    }
+
+    @Test
+    public void releasesUnresolvedPackets() {
+        writeInbound(frame(0x7f, new byte[16]));
+
+        assertEquals(SessionStateEnum.HANDSHAKE, this.session.getState());
+    }
+
+    @Test
+    public void releasesMalformedPackets() {
+        // A handshake without a body fails to read
+        try {
+            writeInbound(frame(0x00, new byte[0]));
+            fail("Expected the malformed handshake to fail");
+        } catch (IndexOutOfBoundsException expected) {
+            // the frame must still be released
+        }
+    }
+
+    /**
+     * Hands out leak-aware heap buffers, remembering them so the test can check each was released.
+     */
+    private static final class TrackingAllocator extends AbstractByteBufAllocator {
+
+        private final List<ByteBuf> buffers = new ArrayList<>();
+
+        @Override
+        protected ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity) {
+            ByteBuf buf = Unpooled.buffer(initialCapacity, maxCapacity);
+            this.buffers.add(buf);
+            return toLeakAwareBuffer(buf);
+        }
+
+        @Override
+        protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
+            return newHeapBuffer(initialCapacity, maxCapacity);
+        }
+
+        @Override
+        public boolean isDirectBufferPooled() {
+            return false;
+        }
+
+        private void assertAllReleased() {
+            for (int i = 0; i < this.buffers.size(); i++) {
+                assertEquals("refCnt of buffer " + i, 0, this.buffers.get(i).refCnt());
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,286 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.packet.registry;
+
+import static org.poweredrails.rails.net.session.SessionStateEnum.HANDSHAKE;
+import static org.poweredrails.rails.net.session.SessionStateEnum.LOGIN;
+import static org.poweredrails.rails.net.session.SessionStateEnum.STATUS;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import org.poweredrails.rails.net.packet.Packet;
+import org.poweredrails.rails.net.packet.handshake.PacketReceiveHandshake;
+import org.poweredrails.rails.net.packet.login.PacketReceiveEncryptResponse;
+import org.poweredrails.rails.net.packet.login.PacketReceiveLoginStart;
+import org.poweredrails.rails.net.packet.login.PacketSendDisconnect;
+import org.poweredrails.rails.net.packet.login.PacketSendEncryptRequest;
+import org.poweredrails.rails.net.packet.login.PacketSendLoginSuccess;
+import org.poweredrails.rails.net.packet.login.PacketSendSetCompression;
+import org.poweredrails.rails.net.packet.status.PacketReceivePing;
+import org.poweredrails.rails.net.packet.status.PacketReceiveStatusRequest;
+import org.poweredrails.rails.net.packet.status.PacketSendPong;
+import org.poweredrails.rails.net.packet.status.PacketSendStatusResponse;
+import org.poweredrails.rails.net.session.SessionStateEnum;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Measures the cost of looking up and creating an incoming packet, and of looking up an outgoing packet's id, in
+ * the packet registry and in the table backed registry it replaced, reimplemented below as it was. Creating
+ * packets from their constructor references is also measured on its own, against the reflective
+ * {@link Class#newInstance()} factories the registry used before. Every packet resolves a type token when it is
+ * constructed, which outweighs either factory, so both are measured creating an empty object as well.
+ *
+ * <p>Each lookup cycles through every packet registered in the handshake, status and login states, so neither
+ * path is measured against a single constant key. Run with {@code main}, optionally passing the seconds to
+ * measure each path for.</p>
+ */
+public final class PacketRegistryBenchmark {
+
+    private static final SessionStateEnum[] INCOMING_STATES = { HANDSHAKE, STATUS, STATUS, LOGIN, LOGIN };
+    private static final int[] INCOMING_IDS = { 0x00, 0x00, 0x01, 0x00, 0x01 };
+
+    private static final SessionStateEnum[] OUTGOING_STATES = { STATUS, STATUS, LOGIN, LOGIN, LOGIN, LOGIN };
+    private static final Packet<?>[] OUTGOING = {
+        new PacketSendStatusResponse("{}"),
+        new PacketSendPong(0),
+        new PacketSendDisconnect("{}"),
+        new PacketSendEncryptRequest("", new byte[0], new byte[0]),
+        new PacketSendLoginSuccess(UUID.randomUUID(), "Steve"),
+        new PacketSendSetCompression(256)
+    };
+
+    private static final PacketFactory[] SUPPLIER_FACTORIES = {
+        new PacketFactory(PacketReceiveHandshake::new),
+        new PacketFactory(PacketReceiveStatusRequest::new),
+        new PacketFactory(PacketReceivePing::new),
+        new PacketFactory(PacketReceiveLoginStart::new),
+        new PacketFactory(PacketReceiveEncryptResponse::new)
+    };
+    private static final ReflectiveFactory[] REFLECTIVE_FACTORIES = {
+        new ReflectiveFactory(PacketReceiveHandshake.class),
+        new ReflectiveFactory(PacketReceiveStatusRequest.class),
+        new ReflectiveFactory(PacketReceivePing.class),
+        new ReflectiveFactory(PacketReceiveLoginStart.class),
+        new ReflectiveFactory(PacketReceiveEncryptResponse.class)
+    };
+
+    private static final Supplier<Empty> EMPTY_SUPPLIER = Empty::new;
+
+    private final PacketRegistry registry = new PacketRegistry();
+    private final TableRegistry tableRegistry = new TableRegistry();
+
+    private int next;
+    private Packet<?> created;
+    private Empty empty;
+
+    private int createIncoming() {
+        int index = this.next++ % INCOMING_IDS.length;
+        this.created = this.registry.find(INCOMING_STATES[index], INCOMING_IDS[index]).create();
+        return index;
+    }
+
+    private int createIncomingFromTable() {
+        int index = this.next++ % INCOMING_IDS.length;
+        this.created = this.tableRegistry.find(INCOMING_STATES[index], INCOMING_IDS[index]).create();
+        return index;
+    }
+
+    private int createFromSupplier() {
+        int index = this.next++ % SUPPLIER_FACTORIES.length;
+        this.created = SUPPLIER_FACTORIES[index].create();
+        return index;
+    }
+
+    private int createReflectively() {
+        int index = this.next++ % REFLECTIVE_FACTORIES.length;
+        this.created = REFLECTIVE_FACTORIES[index].create();
+        return index;
+    }
+
+    private int createEmptyFromSupplier() {
+        this.empty = EMPTY_SUPPLIER.get();
+        return 1;
+    }
+
+    @SuppressWarnings("deprecation")
+    private int createEmptyReflectively() {
+        try {
+            this.empty = Empty.class.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+
+        return 1;
+    }
+
+    private int findOutgoing() {
+        int index = this.next++ % OUTGOING.length;
+        return this.registry.find(OUTGOING_STATES[index], OUTGOING[index]);
+    }
+
+    private int findOutgoingInTable() {
+        int index = this.next++ % OUTGOING.length;
+        return this.tableRegistry.find(OUTGOING_STATES[index], OUTGOING[index]);
+    }
+
+    private static double measure(IntSupplier lookup, long nanos) {
+        long sink = 0;
+        for (int i = 0; i < 5_000_000; i++) {
+            sink += lookup.getAsInt();
+        }
+
+        long lookups = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 100_000; i++) {
+                sink += lookup.getAsInt();
+            }
+
+            lookups += 100_000;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+
+        if (sink == 0) {
+            throw new IllegalStateException("Nothing was looked up!");
+        }
+
+        return (double) elapsed / lookups;
+    }
+
+    /**
+     * The packet registry as it was before it was backed by arrays, with a Guava table per direction. Incoming
+     * packets are registered with the same constructor references, so only the lookups differ.
+     */
+    private static final class TableRegistry {
+
+        private final Table<SessionStateEnum, Integer, Supplier<? extends Packet<?>>> tableIncoming =
+                HashBasedTable.create();
+        private final Table<SessionStateEnum, Integer, Class<? extends Packet<?>>> tableOutgoing =
+                HashBasedTable.create();
+
+        private TableRegistry() {
+            this.tableIncoming.put(HANDSHAKE, 0x00, PacketReceiveHandshake::new);
+
+            this.tableIncoming.put(STATUS, 0x00, PacketReceiveStatusRequest::new);
+            this.tableOutgoing.put(STATUS, 0x00, PacketSendStatusResponse.class);
+            this.tableIncoming.put(STATUS, 0x01, PacketReceivePing::new);
+            this.tableOutgoing.put(STATUS, 0x01, PacketSendPong.class);
+
+            this.tableIncoming.put(LOGIN, 0x00, PacketReceiveLoginStart::new);
+            this.tableOutgoing.put(LOGIN, 0x00, PacketSendDisconnect.class);
+            this.tableIncoming.put(LOGIN, 0x01, PacketReceiveEncryptResponse::new);
+            this.tableOutgoing.put(LOGIN, 0x01, PacketSendEncryptRequest.class);
+            this.tableOutgoing.put(LOGIN, 0x02, PacketSendLoginSuccess.class);
+            this.tableOutgoing.put(LOGIN, 0x03, PacketSendSetCompression.class);
+        }
+
+        private PacketFactory find(SessionStateEnum state, int id) {
+            Supplier<? extends Packet<?>> supplier = this.tableIncoming.get(state, id);
+
+            if (supplier != null) {
+                return new PacketFactory(supplier);
+            }
+
+            return null;
+        }
+
+        private int find(SessionStateEnum state, Packet<?> packet) {
+            Class<?> packetClass = packet.getClass();
+            Map<Integer, Class<? extends Packet<?>>> rowMap = this.tableOutgoing.row(state);
+
+            for (Map.Entry<Integer, Class<? extends Packet<?>>> entry : rowMap.entrySet()) {
+                if (entry.getValue().equals(packetClass)) {
+                    return entry.getKey();
+                }
+            }
+
+            throw new RuntimeException("Packet " + packetClass.getName() + " isn't registered...!");
+        }
+
+    }
+
+    /**
+     * The packet factory as it was before packets were registered with their constructor references.
+     */
+    private static final class ReflectiveFactory {
+
+        private final Class<? extends Packet<?>> clazz;
+
+        private ReflectiveFactory(Class<? extends Packet<?>> clazz) {
+            this.clazz = clazz;
+        }
+
+        @SuppressWarnings("deprecation")
+        private Packet<?> create() {
+            try {
+                return this.clazz.newInstance();
+            } catch (InstantiationException e) {
+                throw new RuntimeException("Failed to create an instance of class: " + this.clazz, e);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Failed to access class: " + this.clazz, e);
+            }
+        }
+
+    }
+
+    public static final class Empty {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args the seconds to measure each path for, 2 by default
+     */
+    public static void main(String[] args) {
+        long nanos = (long) ((args.length > 0 ? Double.parseDouble(args[0]) : 2) * 1e9);
+        PacketRegistryBenchmark benchmark = new PacketRegistryBenchmark();
+
+        System.out.printf("incoming find + create, arrays: %6.1f ns/packet%n",
+                measure(benchmark::createIncoming, nanos));
+        System.out.printf("incoming find + create, tables: %6.1f ns/packet%n",
+                measure(benchmark::createIncomingFromTable, nanos));
+        System.out.printf("create, constructor reference:  %6.1f ns/packet%n",
+                measure(benchmark::createFromSupplier, nanos));
+        System.out.printf("create, Class.newInstance:      %6.1f ns/packet%n",
+                measure(benchmark::createReflectively, nanos));
+        System.out.printf("empty, constructor reference:   %6.1f ns/object%n",
+                measure(benchmark::createEmptyFromSupplier, nanos));
+        System.out.printf("empty, Class.newInstance:       %6.1f ns/object%n",
+                measure(benchmark::createEmptyReflectively, nanos));
+        System.out.printf("outgoing find,          arrays: %6.1f ns/packet%n",
+                measure(benchmark::findOutgoing, nanos));
+        System.out.printf("outgoing find,          tables: %6.1f ns/packet%n",
+                measure(benchmark::findOutgoingInTable, nanos));
+
+        if (benchmark.created == null || benchmark.empty == null) {
+            throw new IllegalStateException("No packets were created!");
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.poweredrails.rails.net.buffer.Buffer;
+import org.poweredrails.rails.net.packet.FrameEncoder;
+import org.poweredrails.rails.net.packet.PacketEncoder;
+import org.poweredrails.rails.net.packet.login.PacketSendLoginSuccess;
+import org.poweredrails.rails.net.packet.login.PacketSendSetCompression;
+import org.poweredrails.rails.net.packet.registry.PacketRegistry;
+
+import java.util.UUID;
+import java.util.zip.Inflater;
+
+public class SessionCompressionTest {
+
+    private final PacketRegistry packetRegistry = new PacketRegistry();
+
+    private EmbeddedChannel channel;
+    private Session session;
+
+    @Before
+    public void setUp() {
+        this.channel = new EmbeddedChannel();
+
+        SessionManager sessionManager = new SessionManager(this.packetRegistry);
+        this.session = sessionManager.getSession(this.channel);
+        this.session.setState(SessionStateEnum.LOGIN);
+
+        // The embedded channel keeps its own handler last to collect messages, so ours go in front of it
+        this.channel.pipeline().addFirst("encoder", new PacketEncoder(sessionManager, this.packetRegistry));
+        this.channel.pipeline().addFirst("frame_encoder", new FrameEncoder());
+    }
+
+    @After
+    public void tearDown() {
+        assertFalse(this.channel.finish());
+    }
+
+    @Test
+    public void compressesEverythingSentAfterSetCompression() throws Exception {
+        PacketSendLoginSuccess loginSuccess = new PacketSendLoginSuccess(UUID.randomUUID(), "Notch");
+
+        // The same sequence the login handler runs once the session server has verified the player
+        this.session.sendPacket(new PacketSendSetCompression(0));
+        this.session.enableCompression(0);
+        this.session.sendPacket(loginSuccess);
+
+        ByteBuf setCompression = (ByteBuf) this.channel.readOutbound();
+        try {
+            Buffer in = new Buffer(setCompression);
+            assertEquals(setCompression.readableBytes() - 1, in.readVarInt(5));
+            assertEquals(this.packetRegistry.find(SessionStateEnum.LOGIN, new PacketSendSetCompression(0)),
+                    in.readVarInt(5));
+        } finally {
+            setCompression.release();
+        }
+
+        ByteBuf compressed = (ByteBuf) this.channel.readOutbound();
+        try {
+            Buffer in = new Buffer(compressed);
+            assertEquals(compressed.readableBytes() - 1, in.readVarInt(5));
+
+            int dataLength = in.readVarInt(5);
+            byte[] deflated = new byte[compressed.readableBytes()];
+            compressed.readBytes(deflated);
+
+            Inflater inflater = new Inflater();
+            inflater.setInput(deflated);
+            byte[] data = new byte[dataLength];
+            assertEquals(dataLength, inflater.inflate(data));
+            inflater.end();
+
+            assertEquals(this.packetRegistry.find(SessionStateEnum.LOGIN, loginSuccess), data[0]);
+        } finally {
+            compressed.release();
+        }
+
+        assertNull(this.channel.readOutbound());
+    }
+
+}
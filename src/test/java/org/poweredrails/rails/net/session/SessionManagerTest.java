@@ -0,0 +1,90 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.net.session;
+
+import static org.junit.Assert.assertEquals;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.poweredrails.rails.net.handler.status.ServerStatus;
+import org.poweredrails.rails.net.packet.registry.PacketRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+public class SessionManagerTest {
+
+    private final ServerStatus status = new ServerStatus(0, TimeUnit.MILLISECONDS);
+    private final SessionManager sessionManager = new SessionManager(new PacketRegistry(), this.status);
+
+    @Test
+    public void countsSessionsInThePlayState() throws Exception {
+        Session first = this.sessionManager.getSession(new EmbeddedChannel());
+        final Session second = this.sessionManager.getSession(new EmbeddedChannel());
+        final Session pinging = this.sessionManager.getSession(new EmbeddedChannel());
+
+        first.setState(SessionStateEnum.LOGIN);
+        first.setState(SessionStateEnum.PLAY);
+        second.setState(SessionStateEnum.PLAY);
+        pinging.setState(SessionStateEnum.STATUS);
+
+        assertEquals(2, this.sessionManager.getOnlineCount());
+        assertEquals(2, this.status.getOnlinePlayers());
+        assertEquals(2, onlineInJson());
+
+        // Entering the play state again doesn't count the session twice
+        first.setState(SessionStateEnum.PLAY);
+        assertEquals(2, this.status.getOnlinePlayers());
+    }
+
+    @Test
+    public void stopsCountingDisposedSessions() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        this.sessionManager.getSession(channel).setState(SessionStateEnum.PLAY);
+        this.sessionManager.getSession(new EmbeddedChannel()).setState(SessionStateEnum.PLAY);
+        assertEquals(2, this.status.getOnlinePlayers());
+
+        channel.close();
+        this.sessionManager.dispose(channel);
+
+        assertEquals(1, this.sessionManager.getOnlineCount());
+        assertEquals(1, this.status.getOnlinePlayers());
+        assertEquals(1, onlineInJson());
+
+        // A session disposed of before it reaches the play state is never counted
+        EmbeddedChannel loggingIn = new EmbeddedChannel();
+        Session session = this.sessionManager.getSession(loggingIn);
+        session.setState(SessionStateEnum.LOGIN);
+        this.sessionManager.dispose(loggingIn);
+
+        session.setState(SessionStateEnum.PLAY);
+        assertEquals(1, this.status.getOnlinePlayers());
+    }
+
+    private int onlineInJson() throws Exception {
+        return new JSONObject(this.status.getJson()).getJSONObject("players").getInt("online");
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.util.auth;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.Cipher;
+
+/**
+ * Measures how many logins per second the login crypto decrypts and hashes, with one worker and with a worker per
+ * processor, and the rate per core for each.
+ *
+ * <p>Logins are submitted from a pool of secrets and tokens encrypted up front with the server's public key, the
+ * way clients encrypt them, keeping the queue full without overflowing it. Run with {@code main}, optionally
+ * passing the seconds to measure each pool size for.</p>
+ */
+public final class LoginCryptoBenchmark {
+
+    private static final int QUEUE = 256;
+
+    private final KeyPair keyPair = Encryption.generateKeyPair();
+    private final byte[] publicKey = Encryption.toX509(this.keyPair.getPublic()).getEncoded();
+
+    private final byte[][] secrets = new byte[64][];
+    private final byte[][] tokens = new byte[64][];
+
+    private LoginCryptoBenchmark() throws Exception {
+        Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, (PublicKey) Encryption.toX509(this.keyPair.getPublic()));
+
+        for (int i = 0; i < this.secrets.length; i++) {
+            this.secrets[i] = cipher.doFinal(Encryption.generateToken(16));
+            this.tokens[i] = cipher.doFinal(Encryption.generateToken(4));
+        }
+    }
+
+    private double measure(int threads, long nanos) throws InterruptedException {
+        LoginCrypto crypto = new LoginCrypto(this.keyPair.getPrivate(), this.publicKey, threads, QUEUE);
+        Semaphore queued = new Semaphore(QUEUE);
+        AtomicLong completed = new AtomicLong();
+
+        // The first quarter warms up, and only logins completing in the rest are counted
+        long measureStart = System.nanoTime() + nanos / 4;
+        long measureEnd = measureStart + nanos;
+
+        long logins = 0;
+        while (System.nanoTime() < measureEnd) {
+            queued.acquire();
+
+            int index = (int) (logins++ % this.secrets.length);
+            crypto.decrypt("", this.secrets[index], this.tokens[index]).whenComplete((result, error) -> {
+                if (error != null) {
+                    error.printStackTrace();
+                }
+
+                long now = System.nanoTime();
+                if (now >= measureStart && now < measureEnd) {
+                    completed.incrementAndGet();
+                }
+
+                queued.release();
+            });
+        }
+
+        queued.acquire(QUEUE);
+        crypto.shutdown();
+
+        return completed.get() / (nanos / 1e9);
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args the seconds to measure each pool size for, 4 by default
+     * @throws Exception if the secrets could not be encrypted
+     */
+    public static void main(String[] args) throws Exception {
+        long nanos = (long) ((args.length > 0 ? Double.parseDouble(args[0]) : 4) * 1e9);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        LoginCryptoBenchmark benchmark = new LoginCryptoBenchmark();
+        for (int threads : cores > 1 ? new int[] { 1, cores } : new int[] { 1 }) {
+            double logins = benchmark.measure(threads, nanos);
+            System.out.printf("%2d workers: %,8.0f logins/sec, %,8.0f logins/sec per core%n", threads, logins,
+                    logins / Math.min(threads, cores));
+        }
+
+    }
+
+}
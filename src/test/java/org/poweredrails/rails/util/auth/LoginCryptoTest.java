@@ -0,0 +1,122 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.util.auth;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+
+public class LoginCryptoTest {
+
+    private final KeyPair keyPair = Encryption.generateKeyPair();
+    private final byte[] publicKey = Encryption.toX509(this.keyPair.getPublic()).getEncoded();
+
+    private LoginCrypto crypto = new LoginCrypto(this.keyPair.getPrivate(), this.publicKey, 2, 16);
+
+    @After
+    public void tearDown() {
+        this.crypto.shutdown();
+    }
+
+    /**
+     * Encrypts with the server's public key, the way a client encrypts its shared secret and verify token.
+     */
+    private byte[] encrypt(byte[] data) throws Exception {
+        Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, (PublicKey) Encryption.toX509(this.keyPair.getPublic()));
+        return cipher.doFinal(data);
+    }
+
+    private LoginCrypto.Result decrypt(String serverId, byte[] secret, byte[] token) throws Exception {
+        return this.crypto.decrypt(serverId, encrypt(secret), encrypt(token)).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void decryptsTheSharedSecretAndVerifyToken() throws Exception {
+        byte[] secret = Encryption.generateToken(16);
+        byte[] token = Encryption.generateToken(4);
+
+        LoginCrypto.Result result = decrypt("", secret, token);
+
+        assertArrayEquals(secret, result.getSharedSecret().getEncoded());
+        assertEquals("AES", result.getSharedSecret().getAlgorithm());
+        assertArrayEquals(token, result.getVerifyToken());
+    }
+
+    @Test
+    public void hashesServerIdSecretAndPublicKey() throws Exception {
+        byte[] secret = Encryption.generateToken(16);
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        digest.update("rails".getBytes(StandardCharsets.ISO_8859_1));
+        digest.update(secret);
+        digest.update(this.publicKey);
+        String expected = new BigInteger(digest.digest()).toString(16);
+
+        assertEquals(expected, decrypt("rails", secret, new byte[4]).getServerHash());
+    }
+
+    @Test
+    public void formatsHashesAsSignedHex() throws Exception {
+        // With an empty server id and public key the hash is just the SHA-1 of the secret, which for these names
+        // are the known examples of the session server's hash format, one of them negative and one shorter than
+        // 40 digits
+        this.crypto.shutdown();
+        this.crypto = new LoginCrypto(this.keyPair.getPrivate(), new byte[0], 1, 16);
+
+        assertEquals("4ed1f46bbe04bc756bcb17c0c7ce3e4632f06a48",
+                decrypt("", "Notch".getBytes(StandardCharsets.US_ASCII), new byte[4]).getServerHash());
+        assertEquals("-7c9d5b0044c130109a5d7b5fb5c317c02b4e28c1",
+                decrypt("", "jeb_".getBytes(StandardCharsets.US_ASCII), new byte[4]).getServerHash());
+        assertEquals("88e16a1019277b15d58faf0541e11910eb756f6",
+                decrypt("", "simon".getBytes(StandardCharsets.US_ASCII), new byte[4]).getServerHash());
+    }
+
+    @Test
+    public void failsOnSecretsNotEncryptedWithTheServerKey() throws Exception {
+        byte[] garbage = Encryption.generateToken(128);
+
+        try {
+            this.crypto.decrypt("", garbage, encrypt(new byte[4])).get(10, TimeUnit.SECONDS);
+            fail("Decrypted a secret that wasn't encrypted with the server's key");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RuntimeException);
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.util.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.google.common.collect.ImmutableList;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class ProfileCacheTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final GameProfile notch = new GameProfile(UUID.randomUUID(), "Notch", ImmutableList.of());
+    private final GameProfile jeb = new GameProfile(UUID.randomUUID(), "jeb_", ImmutableList.of());
+
+    private Path writeSnapshot(long notchCachedAt, long jebCachedAt) throws Exception {
+        JSONArray profiles = new JSONArray();
+        profiles.put(this.notch.toJson().put("cachedAt", notchCachedAt));
+        profiles.put(this.jeb.toJson().put("cachedAt", jebCachedAt));
+
+        Path file = this.folder.newFile().toPath();
+        Files.write(file, new JSONObject().put("profiles", profiles).toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void lookupByNameIgnoresCase() {
+        ProfileCache cache = new ProfileCache(1, TimeUnit.HOURS, 100);
+        cache.put(this.notch);
+
+        assertEquals(this.notch.getUuid(), cache.getProfile("nOTCH").getUuid());
+        assertNull(cache.getProfile("jeb_"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void loadSkipsProfilesCachedLongerThanTtl() throws Exception {
+        long now = System.currentTimeMillis();
+        Path file = writeSnapshot(now - TimeUnit.MINUTES.toMillis(10), now - TimeUnit.HOURS.toMillis(2));
+
+        ProfileCache cache = new ProfileCache(1, TimeUnit.HOURS, 100);
+        cache.load(file);
+
+        assertNotNull(cache.getProfile(this.notch.getUuid()));
+        assertNull(cache.getProfile(this.jeb.getUuid()));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void loadedProfilesExpireAtTheirOriginalTime() throws Exception {
+        long now = System.currentTimeMillis();
+        Path file = writeSnapshot(now - 1500, now);
+
+        ProfileCache cache = new ProfileCache(2, TimeUnit.SECONDS, 100);
+        cache.load(file);
+        assertNotNull(cache.getProfile("Notch"));
+
+        Thread.sleep(600);
+
+        assertNull(cache.getProfile("Notch"));
+        assertNotNull(cache.getProfile("jeb_"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void saveKeepsTheOriginalCacheTime() throws Exception {
+        long cachedAt = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(50);
+        Path file = writeSnapshot(cachedAt, cachedAt);
+
+        ProfileCache cache = new ProfileCache(1, TimeUnit.HOURS, 100);
+        cache.load(file);
+        cache.save(file);
+
+        JSONObject json = new JSONObject(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        JSONArray profiles = json.getJSONArray("profiles");
+
+        assertEquals(2, profiles.length());
+        for (int i = 0; i < profiles.length(); i++) {
+            assertEquals(cachedAt, profiles.getJSONObject(i).getLong("cachedAt"));
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.util.auth;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.poweredrails.rails.net.channel.TransportType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class SessionServerClientTest {
+
+    private static final String SERVER_ID = "-1a2b3c";
+    private static final String FLAT_ID = "069a79f444e94726a5befca90e38aaf5";
+
+    private StubSessionServer server;
+    private EventLoopGroup group;
+    private SessionServerClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        this.server = new StubSessionServer();
+        this.group = new NioEventLoopGroup(2);
+    }
+
+    @After
+    public void tearDown() {
+        if (this.client != null) {
+            this.client.close();
+        }
+
+        this.group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        this.server.close();
+    }
+
+    private SessionServerClient newClient(int requestTimeoutMillis, int maxConnections) {
+        SessionServerSettings settings = new SessionServerSettings(this.server.getUrl(), 1000, requestTimeoutMillis,
+                maxConnections);
+        this.client = new SessionServerClient(this.group, TransportType.NIO, settings);
+        return this.client;
+    }
+
+    @Test
+    public void returnsProfileOfJoinedPlayer() throws Exception {
+        this.server.join("Notch", SERVER_ID, FLAT_ID);
+        SessionServerClient client = newClient(5000, 4);
+
+        JSONObject profile = client.hasJoined("Notch", SERVER_ID).get(5, TimeUnit.SECONDS);
+
+        assertEquals(FLAT_ID, profile.getString("id"));
+        assertEquals("Notch", profile.getString("name"));
+    }
+
+    @Test
+    public void returnsNullWhenPlayerHasNotJoined() throws Exception {
+        this.server.join("Notch", SERVER_ID, FLAT_ID);
+        SessionServerClient client = newClient(5000, 4);
+
+        assertNull(client.hasJoined("Notch", "other").get(5, TimeUnit.SECONDS));
+        assertNull(client.hasJoined("jeb_", SERVER_ID).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failsOnErrorStatus() throws Exception {
+        this.server.setForcedStatus(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        SessionServerClient client = newClient(5000, 4);
+
+        assertFailsWith(IOException.class, client.hasJoined("Notch", SERVER_ID));
+    }
+
+    @Test
+    public void failsWhenResponseTimesOut() throws Exception {
+        this.server.setDelayMillis(2000);
+        SessionServerClient client = newClient(200, 4);
+
+        assertFailsWith(TimeoutException.class, client.hasJoined("Notch", SERVER_ID));
+    }
+
+    @Test
+    public void reusesBoundedConnections() throws Exception {
+        this.server.join("Notch", SERVER_ID, FLAT_ID);
+        SessionServerClient client = newClient(10000, 4);
+
+        List<CompletableFuture<JSONObject>> results = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            results.add(client.hasJoined("Notch", SERVER_ID));
+        }
+
+        for (CompletableFuture<JSONObject> result : results) {
+            assertEquals(FLAT_ID, result.get(10, TimeUnit.SECONDS).getString("id"));
+        }
+
+        assertEquals(500, this.server.getRequests());
+        assertThat(this.server.getConnections(), lessThanOrEqualTo(4));
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> type, CompletableFuture<?> result)
+            throws Exception {
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("Expected " + type.getSimpleName());
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(type));
+        }
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * This file is a part of the multiplayer platform Powered Rails, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Powered Rails
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.poweredrails.rails.util.auth;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local stand-in for the session server's hasJoined endpoint, answering from the players registered with
+ * {@link #join(String, String, String)}.
+ */
+public class StubSessionServer implements AutoCloseable {
+
+    public static final String PATH = "/session/minecraft/hasJoined";
+
+    private final EventLoopGroup group = new NioEventLoopGroup(1);
+    private final Channel channel;
+
+    private final Map<String, Join> joins = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile HttpResponseStatus forcedStatus;
+    private volatile long delayMillis;
+
+    /**
+     * Starts a stub session server on a free local port.
+     * @throws InterruptedException if interrupted while binding
+     */
+    public StubSessionServer() throws InterruptedException {
+        this.channel = new ServerBootstrap()
+                .group(this.group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        StubSessionServer.this.connections.incrementAndGet();
+
+                        ch.pipeline().addLast(new HttpServerCodec());
+                        ch.pipeline().addLast(new HttpObjectAggregator(8192));
+                        ch.pipeline().addLast(new HttpContentCompressor());
+                        ch.pipeline().addLast(new RequestHandler());
+                    }
+                })
+                .bind("127.0.0.1", 0).sync().channel();
+    }
+
+    /**
+     * Returns the url of the hasJoined endpoint served by this stub.
+     * @return url
+     */
+    public String getUrl() {
+        InetSocketAddress address = (InetSocketAddress) this.channel.localAddress();
+        return "http://127.0.0.1:" + address.getPort() + PATH;
+    }
+
+    /**
+     * Records that a player joined with the given server hash, as the client would before logging in.
+     * @param username the username of the player
+     * @param serverId the server hash
+     * @param id the flat uuid of the player
+     */
+    public void join(String username, String serverId, String id) {
+        this.joins.put(username, new Join(serverId, id));
+    }
+
+    /**
+     * Makes every following request fail with the given status, or answer normally again if null.
+     * @param status the status to respond with
+     */
+    public void setForcedStatus(HttpResponseStatus status) {
+        this.forcedStatus = status;
+    }
+
+    /**
+     * Delays every following response.
+     * @param delayMillis the delay in milliseconds
+     */
+    public void setDelayMillis(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    public int getConnections() {
+        return this.connections.get();
+    }
+
+    public int getRequests() {
+        return this.requests.get();
+    }
+
+    @Override
+    public void close() {
+        this.channel.close().syncUninterruptibly();
+        this.group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    private FullHttpResponse respond(FullHttpRequest request) throws JSONException {
+        HttpResponseStatus forcedStatus = this.forcedStatus;
+        if (forcedStatus != null) {
+            return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, forcedStatus);
+        }
+
+        QueryStringDecoder query = new QueryStringDecoder(request.getUri());
+        if (!PATH.equals(query.path())) {
+            return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND);
+        }
+
+        String username = first(query.parameters().get("username"));
+        String serverId = first(query.parameters().get("serverId"));
+
+        Join join = username == null ? null : this.joins.get(username);
+        if (join == null || !join.serverId.equals(serverId)) {
+            return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NO_CONTENT);
+        }
+
+        JSONObject profile = new JSONObject();
+        profile.put("id", join.id);
+        profile.put("name", username);
+        profile.put("properties", new JSONArray());
+
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                Unpooled.copiedBuffer(profile.toString(), StandardCharsets.UTF_8));
+        response.headers().set(HttpHeaders.Names.CONTENT_TYPE, "application/json");
+        return response;
+    }
+
+    private static String first(List<String> values) {
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static final class Join {
+
+        private final String serverId;
+        private final String id;
+
+        private Join(String serverId, String id) {
+            this.serverId = serverId;
+            this.id = id;
+        }
+
+    }
+
+    private final class RequestHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) throws Exception {
+            StubSessionServer.this.requests.incrementAndGet();
+
+            FullHttpResponse response = respond(request);
+            boolean keepAlive = HttpHeaders.isKeepAlive(request);
+
+            HttpHeaders.setContentLength(response, response.content().readableBytes());
+            if (keepAlive) {
+                response.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+            }
+
+            long delayMillis = StubSessionServer.this.delayMillis;
+            if (delayMillis > 0) {
+                ctx.executor().schedule(() -> write(ctx, response, keepAlive), delayMillis, TimeUnit.MILLISECONDS);
+            } else {
+                write(ctx, response, keepAlive);
+            }
+        }
+
+        private void write(ChannelHandlerContext ctx, FullHttpResponse response, boolean keepAlive) {
+            if (keepAlive) {
+                ctx.writeAndFlush(response);
+            } else {
+                ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+            }
+        }
+
+    }
+
+}